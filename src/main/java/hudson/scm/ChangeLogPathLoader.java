@@ -0,0 +1,209 @@
+package hudson.scm;
+
+import hudson.scm.SubversionChangeLogSet.LogEntry;
+import hudson.scm.SubversionChangeLogSet.Path;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Loads the paths of {@link LogEntry}s of a huge <tt>changelog.xml</tt> on demand.
+ * <p>
+ * The byte ranges of all <tt>logentry</tt> elements are indexed once. When the paths of an entry are needed, only
+ * its elements are read again from the file. Only the paths of the {@link #WINDOW} most recently used entries
+ * are kept in memory.
+ */
+final class ChangeLogPathLoader {
+
+    private static final byte[] START = "<logentry".getBytes();
+    private static final byte[] END = "</logentry>".getBytes();
+
+    private final File file;
+    private final String encoding;
+    private final boolean ignoreDirPropChanges;
+
+    /**
+     * Start and end offset of each <tt>logentry</tt> element, in document order.
+     */
+    private final long[] starts;
+    private final long[] ends;
+
+    /**
+     * Paths of the recently used entries.
+     */
+    private final Map<LogEntry, List<Path>> loaded = new LinkedHashMap<LogEntry, List<Path>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LogEntry, List<Path>> eldest) {
+            return size() > WINDOW;
+        }
+    };
+
+    private ChangeLogPathLoader(File file, String encoding, boolean ignoreDirPropChanges, long[] starts, long[] ends) {
+        this.file = file;
+        this.encoding = encoding;
+        this.ignoreDirPropChanges = ignoreDirPropChanges;
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * Indexes the <tt>logentry</tt> elements of the given file.
+     *
+     * @param encoding
+     *      the encoding declared by the file, may be null.
+     * @return null if the file can't be indexed.
+     */
+    static ChangeLogPathLoader create(File file, String encoding, boolean ignoreDirPropChanges) throws IOException {
+        if (encoding == null) {
+            encoding = "UTF-8";
+        }
+        if (encoding.toUpperCase().startsWith("UTF-16") || encoding.toUpperCase().startsWith("UTF-32")) {
+            // the byte scan below only works for encodings that are a superset of ASCII
+            return null;
+        }
+
+        List<Long> starts = new ArrayList<Long>();
+        List<Long> ends = new ArrayList<Long>();
+        InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024);
+        try {
+            // '<' only appears in markup, so the tags can be found without parsing
+            int startMatch = 0, endMatch = 0;
+            long offset = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                if (startMatch == START.length) {
+                    // make sure this is <logentry> and not some <logentryfoo>
+                    if (b == '>' || b == '/' || Character.isWhitespace(b)) {
+                        starts.add(offset - START.length);
+                    }
+                    startMatch = 0;
+                }
+                startMatch = b == START[startMatch] ? startMatch + 1 : (b == '<' ? 1 : 0);
+                endMatch = b == END[endMatch] ? endMatch + 1 : (b == '<' ? 1 : 0);
+                offset++;
+                if (endMatch == END.length) {
+                    ends.add(offset);
+                    endMatch = 0;
+                }
+            }
+        } finally {
+            in.close();
+        }
+        if (starts.size() != ends.size()) {
+            return null;
+        }
+        long[] s = new long[starts.size()];
+        long[] e = new long[ends.size()];
+        for (int i = 0; i < s.length; i++) {
+            s[i] = starts.get(i);
+            e[i] = ends.get(i);
+            if (e[i] <= s[i] || (i > 0 && s[i] < e[i - 1])) {
+                // nested or otherwise unexpected structure
+                return null;
+            }
+        }
+        return new ChangeLogPathLoader(file, encoding, ignoreDirPropChanges, s, e);
+    }
+
+    int getFragmentCount() {
+        return starts.length;
+    }
+
+    /**
+     * Gets the paths of the given entry, reading them from the file if they are not in memory.
+     */
+    synchronized List<Path> getPaths(LogEntry entry) {
+        List<Path> paths = loaded.get(entry);
+        if (paths == null) {
+            try {
+                paths = load(entry);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to read the paths of revision " + entry.getRevision() + " from " + file, e);
+                paths = Collections.emptyList();
+            }
+            loaded.put(entry, paths);
+        }
+        return paths;
+    }
+
+    /**
+     * Reads the paths of all the elements of the entry, merging the local paths of duplicated entries
+     * the same way {@link SubversionChangeLogSet#removeDuplicatedEntries(List)} does.
+     */
+    private List<Path> load(LogEntry entry) throws IOException {
+        Map<String, String> pool = new HashMap<String, String>();
+        int[] fragments = entry.getFragments();
+        List<Path> paths = readPaths(fragments[0], pool);
+        for (int i = 1; i < fragments.length; i++) {
+            for (Path source : readPaths(fragments[i], pool)) {
+                if (source.hasLocalPath()) {
+                    for (Path destination : paths) {
+                        if (source.getValue().equals(destination.getValue())) {
+                            destination.setLocalPath(source.getPath());
+                        }
+                    }
+                }
+            }
+        }
+        for (Path path : paths) {
+            path.setLogEntry(entry);
+        }
+        LogEntry.sortPaths(paths);
+        if (ignoreDirPropChanges) {
+            for (Iterator<Path> it = paths.iterator(); it.hasNext();) {
+                if (it.next().isPropOnlyChange()) it.remove();
+            }
+        }
+        return paths;
+    }
+
+    private List<Path> readPaths(int fragment, Map<String, String> pool) throws IOException {
+        byte[] bytes = new byte[(int) (ends[fragment] - starts[fragment])];
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.seek(starts[fragment]);
+            raf.readFully(bytes);
+        } finally {
+            raf.close();
+        }
+        List<LogEntry> entries = new ArrayList<LogEntry>(1);
+        try {
+            XMLStreamReader reader = SubversionChangeLogParser.XML_INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(bytes), encoding);
+            try {
+                SubversionChangeLogParser.readEntries(reader, pool, true, entries);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse " + file, e);
+        }
+        if (entries.size() != 1) {
+            throw new IOException("Unexpected content at offset " + starts[fragment] + " of " + file);
+        }
+        return entries.get(0).getPaths();
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(ChangeLogPathLoader.class.getName());
+
+    /**
+     * Number of entries whose paths are kept in memory, per change log.
+     */
+    static int WINDOW = Integer.getInteger(SubversionChangeLogParser.class.getName() + ".lazyWindow", 100);
+}
@@ -7,17 +7,32 @@ import hudson.scm.SubversionSCM.SVNLogHandler;
 import hudson.scm.SubversionSCM.SvnInfo;
 import hudson.scm.subversion.Messages;
 
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import hudson.util.StreamTaskListener;
+
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import jenkins.model.Jenkins;
 import jenkins.security.MasterToSlaveCallable;
 
 import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.SVNURL;
 import org.tmatesoft.svn.core.auth.ISVNAuthenticationProvider;
+import org.tmatesoft.svn.core.wc.SVNInfo;
 /**
  * Callable which compares the given baseline against the current state of the svn repository and returns the
  * appropriate {@link PollingResult} as answer.
@@ -32,11 +47,23 @@ final class CompareAgainstBaselineCallable extends MasterToSlaveCallable<Polling
     private final ISVNAuthenticationProvider defaultAuthProvider;
     private final Map<String, ISVNAuthenticationProvider> authProviders;
     private final String nodeName;
+    /**
+     * Number of locations polled at the same time per repository host, 1 or less means sequential polling.
+     */
+    private final int concurrencyPerHost;
     private static final long serialVersionUID = 8200959096894789583L;
 
     CompareAgainstBaselineCallable(SVNRevisionState baseline, SVNLogHandler logHandler, String projectName,
                                    TaskListener listener, ISVNAuthenticationProvider defaultAuthProvider,
                                    Map<String, ISVNAuthenticationProvider> authProviders, String nodeName) {
+        this(baseline, logHandler, projectName, listener, defaultAuthProvider, authProviders, nodeName, 1);
+    }
+
+    CompareAgainstBaselineCallable(SVNRevisionState baseline, SVNLogHandler logHandler, String projectName,
+                                   TaskListener listener, ISVNAuthenticationProvider defaultAuthProvider,
+                                   Map<String, ISVNAuthenticationProvider> authProviders, String nodeName,
+                                   int concurrencyPerHost) {
+        this.concurrencyPerHost = concurrencyPerHost;
         this.logHandler = logHandler;
         this.projectName = projectName;
         this.baseline = baseline;
@@ -60,39 +87,169 @@ final class CompareAgainstBaselineCallable extends MasterToSlaveCallable<Polling
         boolean changes = false;
         boolean significantChanges = false;
 
-        for (Map.Entry<String,Long> baselineInfo : baseline.revisions.entrySet()) {
-            String url = baselineInfo.getKey();
-            long baseRev = baselineInfo.getValue();
-            /*
-                If we fail to check the remote revision, assume there's no change.
-                In this way, a temporary SVN server problem won't result in bogus builds,
-                which will fail anyway. So our policy in the error handling in the polling
-                is not to fire off builds. see HUDSON-6136.
-             */
-            revs.put(url, baseRev);
-            try {
-                ISVNAuthenticationProvider authProvider = authProviders.get(url);
-                if (authProvider == null) {
-                    authProvider = defaultAuthProvider;
-                }
-                final SVNURL svnurl = SVNURL.parseURIDecoded(url);
-                long nowRev = new SvnInfo(SubversionSCM.parseSvnInfo(svnurl, authProvider)).revision;
-
-                changes |= (nowRev>baseRev);
-
-                listener.getLogger().println(Messages.SubversionSCM_pollChanges_remoteRevisionAt(url, nowRev));
-                revs.put(url, nowRev);
-                // make sure there's a change and it isn't excluded
-                if (logHandler.findNonExcludedChanges(svnurl, baseRev+1, nowRev, authProvider)) {
-                    listener.getLogger().println(Messages.SubversionSCM_pollChanges_changedFrom(baseRev));
-                    significantChanges = true;
-                }
-            } catch (SVNException e) {
-                e.printStackTrace(listener.error(Messages.SubversionSCM_pollChanges_exception(url)));
+        List<LocationResult> results;
+        if (concurrencyPerHost > 1 && baseline.revisions.size() > 1) {
+            results = pollInParallel();
+        } else {
+            results = new ArrayList<LocationResult>();
+            for (Map.Entry<String,Long> baselineInfo : baseline.revisions.entrySet()) {
+                results.add(pollLocation(baselineInfo.getKey(), baselineInfo.getValue(), logHandler, listener));
             }
         }
+
+        for (LocationResult result : results) {
+            revs.put(result.url, result.revision);
+            changes |= result.changes;
+            significantChanges |= result.significantChanges;
+        }
         assert revs.size()== baseline.revisions.size();
         return new PollingResult(baseline,new SVNRevisionState(revs),
                 significantChanges ? Change.SIGNIFICANT : changes ? Change.INSIGNIFICANT : Change.NONE);
     }
+
+    /**
+     * Checks a single location against its baseline revision.
+     */
+    private LocationResult pollLocation(String url, long baseRev, SVNLogHandler handler, TaskListener listener) {
+        /*
+            If we fail to check the remote revision, assume there's no change.
+            In this way, a temporary SVN server problem won't result in bogus builds,
+            which will fail anyway. So our policy in the error handling in the polling
+            is not to fire off builds. see HUDSON-6136.
+         */
+        LocationResult result = new LocationResult(url, baseRev);
+        try {
+            ISVNAuthenticationProvider authProvider = authProviders.get(url);
+            if (authProvider == null) {
+                authProvider = defaultAuthProvider;
+            }
+            final SVNURL svnurl = SVNURL.parseURIDecoded(url);
+            // the HEAD cache is only maintained on the master, where commit notifications arrive
+            final boolean onMaster = Jenkins.getInstanceOrNull() != null;
+            long youngestRev = onMaster ? RepositoryHeadCache.getYoungestRevision(url) : -1;
+            if (youngestRev >= 0 && youngestRev <= baseRev) {
+                // nothing was committed to the repository since the baseline
+                listener.getLogger().println(Messages.SubversionSCM_pollChanges_remoteRevisionAt(url, baseRev));
+                return result;
+            }
+            SVNInfo info = PollingCoordinator.getInfo(svnurl, authProvider);
+            if (onMaster) {
+                RepositoryHeadCache.record(url, info);
+            }
+            long nowRev = new SvnInfo(info).revision;
+
+            result.changes = (nowRev>baseRev);
+
+            listener.getLogger().println(Messages.SubversionSCM_pollChanges_remoteRevisionAt(url, nowRev));
+            result.revision = nowRev;
+            // make sure there's a change and it isn't excluded
+            if (PollingCoordinator.findNonExcludedChanges(handler, listener, svnurl, info.getRepositoryUUID(), baseRev+1, nowRev, authProvider)) {
+                listener.getLogger().println(Messages.SubversionSCM_pollChanges_changedFrom(baseRev));
+                result.significantChanges = true;
+            }
+        } catch (SVNException e) {
+            e.printStackTrace(listener.error(Messages.SubversionSCM_pollChanges_exception(url)));
+        }
+        return result;
+    }
+
+    /**
+     * Polls all locations at the same time, with at most {@link #concurrencyPerHost} locations per repository host.
+     * Each host gets its own threads, so that the locations of a slow host don't keep the others waiting.
+     * Each location logs into its own buffer, and the buffers are copied to the listener in baseline order
+     * so that the polling log reads the same as with sequential polling.
+     */
+    private List<LocationResult> pollInParallel() throws IOException {
+        final Charset charset = Charset.defaultCharset();
+        final List<Future<LocationResult>> futures = new ArrayList<Future<LocationResult>>();
+        final List<ByteArrayOutputStream> buffers = new ArrayList<ByteArrayOutputStream>();
+
+        Map<String,Integer> locationsPerHost = new HashMap<String,Integer>();
+        for (String url : baseline.revisions.keySet()) {
+            String host = getHostKey(url);
+            Integer n = locationsPerHost.get(host);
+            locationsPerHost.put(host, n == null ? 1 : n + 1);
+        }
+
+        final Map<String,ExecutorService> executors = new HashMap<String,ExecutorService>();
+        try {
+            for (Map.Entry<String,Long> baselineInfo : baseline.revisions.entrySet()) {
+                final String url = baselineInfo.getKey();
+                final long baseRev = baselineInfo.getValue();
+                String host = getHostKey(url);
+                ExecutorService executor = executors.get(host);
+                if (executor == null) {
+                    executor = Executors.newFixedThreadPool(Math.min(locationsPerHost.get(host), concurrencyPerHost),
+                            new NamingThreadFactory(new DaemonThreadFactory(), "SVN polling " + projectName + " on " + host));
+                    executors.put(host, executor);
+                }
+                final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                final TaskListener locationListener = new StreamTaskListener(buffer, charset);
+                final SVNLogHandler handler = logHandler.fork(locationListener);
+                buffers.add(buffer);
+                futures.add(executor.submit(new Callable<LocationResult>() {
+                    public LocationResult call() {
+                        try {
+                            return pollLocation(url, baseRev, handler, locationListener);
+                        } finally {
+                            locationListener.getLogger().flush();
+                        }
+                    }
+                }));
+            }
+
+            List<LocationResult> results = new ArrayList<LocationResult>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IOException(cause);
+                } finally {
+                    buffers.get(i).writeTo(listener.getLogger());
+                }
+            }
+            return results;
+        } catch (InterruptedException e) {
+            throw (IOException) new InterruptedIOException("Polling of " + projectName + " was interrupted").initCause(e);
+        } finally {
+            for (ExecutorService executor : executors.values()) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Key identifying the repository server of the given URL, used to limit the number of concurrent connections.
+     */
+    private static String getHostKey(String url) {
+        try {
+            SVNURL svnurl = SVNURL.parseURIDecoded(url);
+            return svnurl.getProtocol() + "://" + svnurl.getHost() + ":" + svnurl.getPort();
+        } catch (SVNException e) {
+            // pollLocation will report the broken URL
+            return url;
+        }
+    }
+
+    /**
+     * Outcome of polling a single location.
+     */
+    private static final class LocationResult {
+        final String url;
+        long revision;
+        boolean changes;
+        boolean significantChanges;
+
+        LocationResult(String url, long revision) {
+            this.url = url;
+            this.revision = revision;
+        }
+    }
 }
@@ -7,12 +7,14 @@ import com.cloudbees.plugins.credentials.CredentialsMatchers;
 import com.cloudbees.plugins.credentials.CredentialsNameProvider;
 import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.common.CertificateCredentials;
+import com.cloudbees.plugins.credentials.common.IdCredentials;
 import com.cloudbees.plugins.credentials.common.StandardCredentials;
 import com.cloudbees.plugins.credentials.common.UsernameCredentials;
 import com.cloudbees.plugins.credentials.common.UsernamePasswordCredentials;
 import com.cloudbees.plugins.credentials.domains.DomainRequirement;
 import com.cloudbees.plugins.credentials.domains.URIRequirementBuilder;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.Util;
 import hudson.model.Item;
 import hudson.model.TaskListener;
 import hudson.remoting.Channel;
@@ -20,6 +22,7 @@ import hudson.scm.subversion.Messages;
 import hudson.security.ACL;
 import hudson.util.Scrambler;
 import hudson.util.Secret;
+import jenkins.model.Jenkins;
 import jenkins.scm.impl.subversion.RemotableSVNErrorMessage;
 import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.lang.StringUtils;
@@ -28,15 +31,22 @@ import org.tmatesoft.svn.core.SVNErrorMessage;
 import org.tmatesoft.svn.core.SVNURL;
 import org.tmatesoft.svn.core.auth.*;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import javax.security.auth.DestroyFailedException;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.security.UnrecoverableEntryException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -45,9 +55,12 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * @author stephenc
@@ -61,6 +74,23 @@ public class CredentialsSVNAuthenticationProviderImpl implements ISVNAuthenticat
 
     private final SVNUnauthenticatedRealmObserver realmObserver = new RemotableSVNUnauthenticatedRealmObserver();
 
+    /**
+     * The credentials this provider hands out, to compute {@link #getCredentialsKey()} on the master.
+     * They are not sent to agents, which use {@link #provider} instead.
+     */
+    private transient Credentials credentials;
+    private transient Map<String, Credentials> credentialsByRealm;
+    /**
+     * Whether {@link #credentials} are known, false when this provider was sent to another JVM.
+     */
+    private transient boolean local;
+
+    /**
+     * Identifies the credentials this provider hands out, computed the first time it is asked for.
+     */
+    private transient volatile String credentialsKey;
+    private transient volatile boolean credentialsKeyComputed;
+
     private static final SVNAuthentication ANONYMOUS = new SVNUserNameAuthentication("", false, null, false);
 
     public CredentialsSVNAuthenticationProviderImpl(Credentials credentials) {
@@ -72,6 +102,132 @@ public class CredentialsSVNAuthenticationProviderImpl implements ISVNAuthenticat
                                                     TaskListener listener) {
         this.provider = new RemotableSVNAuthenticationBuilderProvider(credentials,
                 credentialsByRealm == null ? Collections.<String, Credentials>emptyMap() : credentialsByRealm, listener);
+        this.credentials = credentials;
+        this.credentialsByRealm = credentialsByRealm;
+        this.local = true;
+    }
+
+    /**
+     * Returns a key that is equal for providers handing out the same credentials.
+     * <p>
+     * The key covers what the credentials resolved to, not only their ids, so that credentials of different folders
+     * that share an id, or credentials whose secret was changed since, get different keys. Keys are only computed
+     * on the master, and they are only meaningful within the JVM that computed them.
+     *
+     * @return null if some of the credentials have no id, or when not on the master.
+     */
+    @CheckForNull
+    public String getCredentialsKey() {
+        if (!local || Jenkins.getInstanceOrNull() == null) {
+            return null;
+        }
+        if (!credentialsKeyComputed) {
+            credentialsKey = computeCredentialsKey(credentials, credentialsByRealm);
+            credentialsKeyComputed = true;
+        }
+        return credentialsKey;
+    }
+
+    /**
+     * Gets the {@link #getCredentialsKey() credentials key} of any provider.
+     *
+     * @return null if the provider doesn't know which credentials it hands out.
+     */
+    @CheckForNull
+    static String credentialsKeyOf(ISVNAuthenticationProvider authProvider) {
+        if (authProvider instanceof CredentialsSVNAuthenticationProviderImpl) {
+            return ((CredentialsSVNAuthenticationProviderImpl) authProvider).getCredentialsKey();
+        }
+        return null;
+    }
+
+    /**
+     * Computes the credentials key. The secrets are only included as a HMAC keyed by {@link #KEY_SECRET},
+     * so that a key can't be used to guess them.
+     */
+    @CheckForNull
+    static String computeCredentialsKey(Credentials credentials, Map<String, Credentials> credentialsByRealm) {
+        Mac digest;
+        try {
+            digest = Mac.getInstance(KEY_ALGORITHM);
+            digest.init(new SecretKeySpec(KEY_SECRET, KEY_ALGORITHM));
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            LOGGER.log(Level.FINE, "Failed to compute the credentials key", e);
+            return null;
+        }
+        StringBuilder key = new StringBuilder();
+        if (credentials != null) {
+            if (!(credentials instanceof IdCredentials) || !fingerprint(digest, credentials)) {
+                return null;
+            }
+            key.append(((IdCredentials) credentials).getId());
+        }
+        if (credentialsByRealm != null) {
+            for (Map.Entry<String, Credentials> e : new TreeMap<String, Credentials>(credentialsByRealm).entrySet()) {
+                if (!(e.getValue() instanceof IdCredentials) || !fingerprint(digest, e.getValue())) {
+                    return null;
+                }
+                key.append('\n').append(e.getKey()).append('=').append(((IdCredentials) e.getValue()).getId());
+            }
+        }
+        return key.append('\n').append(Util.toHexString(digest.doFinal())).toString();
+    }
+
+    /**
+     * Adds what the credentials hand out to SVN to the digest.
+     *
+     * @return false if the credentials can't be read.
+     */
+    private static boolean fingerprint(Mac digest, Credentials c) {
+        update(digest, c.getClass().getName());
+        if (c instanceof UsernameCredentials) {
+            update(digest, ((UsernameCredentials) c).getUsername());
+        }
+        if (c instanceof UsernamePasswordCredentials) {
+            update(digest, ((UsernamePasswordCredentials) c).getPassword().getPlainText());
+        }
+        if (c instanceof SSHUserPrivateKey) {
+            Secret passphrase = ((SSHUserPrivateKey) c).getPassphrase();
+            update(digest, passphrase == null ? null : passphrase.getPlainText());
+            for (String privateKey : ((SSHUserPrivateKey) c).getPrivateKeys()) {
+                update(digest, privateKey);
+            }
+        }
+        if (c instanceof CertificateCredentials) {
+            update(digest, ((CertificateCredentials) c).getPassword().getPlainText());
+            try {
+                KeyStore keyStore = ((CertificateCredentials) c).getKeyStore();
+                for (String alias : new TreeSet<String>(Collections.list(keyStore.aliases()))) {
+                    update(digest, alias);
+                    Certificate certificate = keyStore.getCertificate(alias);
+                    if (certificate != null) {
+                        digest.update(certificate.getEncoded());
+                    }
+                }
+            } catch (KeyStoreException | CertificateEncodingException e) {
+                LOGGER.log(Level.FINE, "Failed to read the certificate of " + CredentialsNameProvider.name(c), e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void update(Mac digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+
+    private static final String KEY_ALGORITHM = "HmacSHA256";
+
+    /**
+     * Random key of the credentials key HMAC, new for every JVM.
+     */
+    private static final byte[] KEY_SECRET = new byte[32];
+
+    static {
+        new SecureRandom().nextBytes(KEY_SECRET);
     }
 
     @Deprecated
@@ -8,12 +8,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.regex.Pattern;
 
 import org.tmatesoft.svn.core.SVNLogEntry;
 import org.tmatesoft.svn.core.SVNLogEntryPath;
 import org.tmatesoft.svn.core.SVNNodeKind;
 import org.tmatesoft.svn.core.SVNProperties;
+import org.tmatesoft.svn.core.SVNRevisionProperty;
 
 /**
  * Determines whether a log entry contains changes within the included paths for a project.
@@ -29,6 +31,13 @@ public class DefaultSVNLogFilter implements SVNLogFilter {
     private Pattern[] excludedCommitMessages;
     private boolean ignoreDirPropChanges;
 
+    /**
+     * Compiled forms of the patterns, created on first use.
+     */
+    private transient PathPatternMatcher includedMatcher;
+    private transient PathPatternMatcher excludedMatcher;
+    private transient String fingerprint;
+
     public DefaultSVNLogFilter(Pattern[] excludedPatterns, Pattern[] includedPatterns, Set<String> excludedUsers, String excludedRevProp, Pattern[] excludedCommitMessages, boolean ignoreDirPropChanges) {
         this.excludedPatterns = excludedPatterns;
         this.includedPatterns = includedPatterns;
@@ -42,6 +51,10 @@ public class DefaultSVNLogFilter implements SVNLogFilter {
         this.listener = listener;
     }
 
+    TaskListener getTaskListener() {
+        return listener;
+    }
+
 	private PrintStream getLog() {
 		return this.listener != null ? this.listener.getLogger() : null;
 	}
@@ -117,56 +130,172 @@ public class DefaultSVNLogFilter implements SVNLogFilter {
             }
         }
 
-        // If there are included patterns, see which paths are included
-        List<String> includedPaths = new ArrayList<String>();
-        if (includedPatterns.length > 0) {
-            for (String path : changedPaths.keySet()) {
-                for (Pattern pattern : includedPatterns) {
-                    if (pattern.matcher(path).matches()) {
-                        includedPaths.add(path);
-                        break;
-                    }
-                }
+        // A change is a change if any changed path is included and not in an excluded region
+        boolean anyIncluded = false;
+        for (String path : changedPaths.keySet()) {
+            if (includedPatterns.length > 0 && !getIncludedMatcher().matches(path)) {
+                continue;
+            }
+            anyIncluded = true;
+            if (excludedPatterns.length == 0 || !getExcludedMatcher().matches(path)) {
+                return true;
             }
-        } else {
-            includedPaths = new ArrayList<String>(changedPaths.keySet());
         }
 
-        // If no paths are included don't count this entry as a change
-        if (includedPaths.isEmpty()) {
-            if (getLog() != null) {
-            	getLog().println(hudson.scm.subversion.Messages.SubversionSCM_pollChanges_ignoredRevision(
+        if (getLog() != null) {
+            if (!anyIncluded) {
+                // If no paths are included don't count this entry as a change
+                getLog().println(hudson.scm.subversion.Messages.SubversionSCM_pollChanges_ignoredRevision(
                     logEntry.getRevision(),
                     hudson.scm.subversion.Messages.SubversionSCM_pollChanges_ignoredRevision_noincpath()));
-            }
-            return false;
-        }
-
-        // Else, check each changed path
-        List<String> excludedPaths = new ArrayList<String>();
-        if (excludedPatterns.length > 0) {
-            for (String path : includedPaths) {
-                for (Pattern pattern : excludedPatterns) {
-                    if (pattern.matcher(path).matches()) {
+            } else {
+                // All included paths are in an excluded region
+                List<String> excludedPaths = new ArrayList<String>();
+                for (String path : changedPaths.keySet()) {
+                    if (includedPatterns.length == 0 || getIncludedMatcher().matches(path)) {
                         excludedPaths.add(path);
-                        break;
                     }
                 }
+                getLog().println(hudson.scm.subversion.Messages.SubversionSCM_pollChanges_ignoredRevision(
+                    logEntry.getRevision(),
+                    hudson.scm.subversion.Messages.SubversionSCM_pollChanges_ignoredRevision_path(Util.join(excludedPaths, ", "))));
             }
         }
+        return false;
+    }
 
-        // If all included paths are in an excluded region, don't count this entry as a change
-        if (includedPaths.size() == excludedPaths.size()) {
-            if (getLog() != null) {
-            	getLog().println(hudson.scm.subversion.Messages.SubversionSCM_pollChanges_ignoredRevision(
-                    logEntry.getRevision(),
-                    hudson.scm.subversion.Messages.SubversionSCM_pollChanges_ignoredRevision_path(Util.join(excludedPaths, ", "))));
+    private PathPatternMatcher getIncludedMatcher() {
+        if (includedMatcher == null) {
+            includedMatcher = new PathPatternMatcher(includedPatterns);
+        }
+        return includedMatcher;
+    }
+
+    private PathPatternMatcher getExcludedMatcher() {
+        if (excludedMatcher == null) {
+            excludedMatcher = new PathPatternMatcher(excludedPatterns);
+        }
+        return excludedMatcher;
+    }
+
+    /**
+     * Gets a string that is equal for two filters if and only if they make the same decisions.
+     */
+    public String getFingerprint() {
+        if (fingerprint == null) {
+            // lengths are written before the strings so that different settings can't give the same fingerprint
+            StringBuilder buf = new StringBuilder();
+            appendPatterns(buf, excludedPatterns);
+            appendPatterns(buf, includedPatterns);
+            buf.append(excludedUsers.size()).append(':');
+            for (String user : new TreeSet<String>(excludedUsers)) {
+                appendString(buf, user);
             }
-            return false;
+            appendString(buf, excludedRevprop);
+            appendPatterns(buf, excludedCommitMessages);
+            buf.append(ignoreDirPropChanges);
+            fingerprint = buf.toString();
+        }
+        return fingerprint;
+    }
+
+    private static void appendPatterns(StringBuilder buf, Pattern[] patterns) {
+        if (patterns == null) {
+            buf.append("-:");
+            return;
+        }
+        buf.append(patterns.length).append(':');
+        for (Pattern pattern : patterns) {
+            buf.append(pattern.flags()).append(':');
+            appendString(buf, pattern.pattern());
+        }
+    }
+
+    private static void appendString(StringBuilder buf, String s) {
+        if (s == null) {
+            buf.append("-:");
+        } else {
+            buf.append(s.length()).append(':').append(s);
+        }
+    }
+
+    /**
+     * Gets the revision properties {@link #isIncluded(SVNLogEntry)} looks at, so that the log can be fetched
+     * without the others.
+     */
+    public String[] getRevisionPropertyNames() {
+        List<String> names = new ArrayList<String>();
+        names.add(SVNRevisionProperty.AUTHOR);
+        names.add(SVNRevisionProperty.LOG);
+        names.add(SVNRevisionProperty.DATE);
+        if (excludedRevprop != null) {
+            names.add(excludedRevprop);
         }
+        return names.toArray(new String[names.size()]);
+    }
 
-        // Otherwise, a change is a change
-        return true;
+    /**
+     * Gets fixed paths that contain every path the included regions can match, so that the log can be restricted to
+     * them on the server.
+     *
+     * @return null if there are no included regions or one of them doesn't start with a fixed directory.
+     */
+    public List<String> getIncludedPathPrefixes() {
+        if (includedPatterns.length == 0) {
+            return null;
+        }
+        List<String> prefixes = new ArrayList<String>();
+        for (Pattern pattern : includedPatterns) {
+            String prefix = getFixedPrefix(pattern);
+            if (prefix == null) {
+                return null;
+            }
+            prefixes.add(prefix);
+        }
+        return prefixes;
+    }
+
+    /**
+     * Gets the longest path that every match of the pattern is equal to or below.
+     *
+     * @return null if there is no such path other than the root.
+     */
+    static String getFixedPrefix(Pattern pattern) {
+        String regex = pattern.pattern();
+        if (pattern.flags() != 0 || regex.indexOf('|') >= 0) {
+            return null;
+        }
+        StringBuilder literal = new StringBuilder();
+        boolean exact = true;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    literal.append(regex.charAt(++i));
+                    continue;
+                }
+            } else if ("[](){}.*+?^$".indexOf(c) < 0) {
+                literal.append(c);
+                continue;
+            } else if ("*+?{".indexOf(c) >= 0 && literal.length() > 0) {
+                // the quantifier applies to the last character, which is not fixed then
+                literal.setLength(literal.length() - 1);
+            }
+            exact = false;
+            break;
+        }
+        String prefix = literal.toString();
+        if (!exact) {
+            // the last segment is only partially fixed
+            prefix = prefix.substring(0, Math.max(prefix.lastIndexOf('/'), 0));
+        }
+        while (prefix.endsWith("/")) {
+            prefix = prefix.substring(0, prefix.length() - 1);
+        }
+        if (!prefix.startsWith("/") || prefix.length() < 2) {
+            return null;
+        }
+        return prefix;
     }
 
     private static final long serialVersionUID = 1L;
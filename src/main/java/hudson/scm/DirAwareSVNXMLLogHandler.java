@@ -49,6 +49,11 @@ public class DirAwareSVNXMLLogHandler extends SVNXMLLogHandler implements ISVNLo
 
   private SubversionChangeLogBuilder.PathContext context;
 
+  /**
+   * Key of the credentials the log is read with, null if unknown.
+   */
+  private String credentials;
+
   public DirAwareSVNXMLLogHandler(ContentHandler contentHandler, SVNLogFilter filter) {
     super(contentHandler);
     this.filter = filter;
@@ -80,7 +85,8 @@ public class DirAwareSVNXMLLogHandler extends SVNXMLLogHandler implements ISVNLo
    */
   public void handleLogEntry(SVNLogEntry logEntry) throws SVNException {
       try {
-          if (filter == null || !filter.hasExclusionRule() || filter.isIncluded(logEntry)) {
+          if (filter == null || !filter.hasExclusionRule()
+                  || LogFilterDecisionCache.isIncluded(filter, context != null ? context.uuid : null, credentials, logEntry)) {
               sendToHandler(logEntry);
           }
       } catch (SAXException e) {
@@ -172,6 +178,10 @@ public class DirAwareSVNXMLLogHandler extends SVNXMLLogHandler implements ISVNLo
     this.context = context;
   }
 
+  void setCredentials(String credentials) {
+    this.credentials = credentials;
+  }
+
   private class MergeFrame {
     private long myNumberOfChildrenRemaining;
   }
@@ -0,0 +1,220 @@
+package hudson.scm;
+
+import hudson.model.Job;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Index from (repository UUID, path) to the jobs whose module locations contain that path, used to dispatch
+ * post-commit notifications without looking at every job.
+ * <p>
+ * For each repository, the module locations are stored in a trie over the path segments relative to the repository
+ * root. Looking up an affected path walks down the trie along its segments and collects every location found on the
+ * way, so the cost is proportional to the length of the affected paths and not to the number of jobs.
+ *
+ * @see SubversionRepositoryStatus.JobTriggerListenerImpl
+ */
+@SuppressWarnings("rawtypes")
+final class JobLocationIndex {
+
+    /**
+     * A module location of an indexed job.
+     */
+    static final class Location {
+        final UUID uuid;
+        /**
+         * URL of the module location, as reported in {@link SubversionSCM.SvnInfo} to the triggered build.
+         */
+        final String url;
+        /**
+         * Path of the module location relative to the repository root, without leading or trailing slash.
+         * Empty when the whole repository is checked out, null if the location is not below the repository root.
+         */
+        final String path;
+
+        Location(UUID uuid, String url, String path) {
+            this.uuid = uuid;
+            this.url = url;
+            this.path = path;
+        }
+
+        @Override
+        public String toString() {
+            return url;
+        }
+    }
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<String, Node>();
+        /**
+         * Locations ending at this node, by the job they belong to.
+         */
+        final Map<Job, List<Location>> locations = new LinkedHashMap<Job, List<Location>>();
+
+        boolean isEmpty() {
+            return children.isEmpty() && locations.isEmpty();
+        }
+    }
+
+    private final Map<UUID, Node> roots = new HashMap<UUID, Node>();
+
+    /**
+     * Locations of each indexed job, one list per Subversion SCM of the job, in configuration order.
+     */
+    private final Map<Job, List<List<Location>>> jobs = new LinkedHashMap<Job, List<List<Location>>>();
+
+    /**
+     * Adds or replaces the locations of a job.
+     *
+     * @param scms
+     *      the locations of each Subversion SCM of the job.
+     */
+    synchronized void put(Job job, List<List<Location>> scms) {
+        remove(job);
+        jobs.put(job, scms);
+        for (List<Location> scm : scms) {
+            for (Location location : scm) {
+                if (location.path == null) {
+                    continue;
+                }
+                Node node = roots.get(location.uuid);
+                if (node == null) {
+                    node = new Node();
+                    roots.put(location.uuid, node);
+                }
+                for (String segment : segments(location.path)) {
+                    Node child = node.children.get(segment);
+                    if (child == null) {
+                        child = new Node();
+                        node.children.put(segment, child);
+                    }
+                    node = child;
+                }
+                List<Location> forJob = node.locations.get(job);
+                if (forJob == null) {
+                    forJob = new ArrayList<Location>(1);
+                    node.locations.put(job, forJob);
+                }
+                forJob.add(location);
+            }
+        }
+    }
+
+    /**
+     * Removes a job from the index.
+     */
+    synchronized void remove(Job job) {
+        List<List<Location>> scms = jobs.remove(job);
+        if (scms == null) {
+            return;
+        }
+        for (List<Location> scm : scms) {
+            for (Location location : scm) {
+                if (location.path == null) {
+                    continue;
+                }
+                Node root = roots.get(location.uuid);
+                if (root != null && remove(root, segments(location.path), 0, job)) {
+                    roots.remove(location.uuid);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the node became empty and should be pruned.
+     */
+    private static boolean remove(Node node, List<String> segments, int index, Job job) {
+        if (index == segments.size()) {
+            node.locations.remove(job);
+        } else {
+            Node child = node.children.get(segments.get(index));
+            if (child != null && remove(child, segments, index + 1, job)) {
+                node.children.remove(segments.get(index));
+            }
+        }
+        return node.isEmpty();
+    }
+
+    /**
+     * Gets the locations of an indexed job.
+     *
+     * @return null if the job is not indexed.
+     */
+    synchronized List<List<Location>> get(Job job) {
+        return jobs.get(job);
+    }
+
+    synchronized boolean isEmpty() {
+        return jobs.isEmpty();
+    }
+
+    synchronized boolean hasRepository(UUID uuid) {
+        return roots.containsKey(uuid);
+    }
+
+    synchronized void clear() {
+        jobs.clear();
+        roots.clear();
+    }
+
+    /**
+     * Finds the module locations that contain at least one of the affected paths.
+     *
+     * @param affectedPaths
+     *      paths relative to the repository root, as sent by the post-commit hook. Directories may end with a slash.
+     * @return the matching locations, by job.
+     */
+    synchronized Map<Job, Set<Location>> lookup(UUID uuid, Set<String> affectedPaths) {
+        Node root = roots.get(uuid);
+        if (root == null) {
+            return Collections.emptyMap();
+        }
+        Map<Job, Set<Location>> matches = new LinkedHashMap<Job, Set<Location>>();
+        for (String path : affectedPaths) {
+            Node node = root;
+            collect(node, matches);
+            for (String segment : path.split("/")) {
+                if (segment.length() == 0) {
+                    // only a location at the root can contain an absolute or otherwise odd path
+                    break;
+                }
+                node = node.children.get(segment);
+                if (node == null) {
+                    break;
+                }
+                collect(node, matches);
+            }
+        }
+        return matches;
+    }
+
+    private static void collect(Node node, Map<Job, Set<Location>> matches) {
+        for (Map.Entry<Job, List<Location>> e : node.locations.entrySet()) {
+            Set<Location> forJob = matches.get(e.getKey());
+            if (forJob == null) {
+                forJob = Collections.newSetFromMap(new IdentityHashMap<Location, Boolean>());
+                matches.put(e.getKey(), forJob);
+            }
+            forJob.addAll(e.getValue());
+        }
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<String>();
+        for (String segment : path.split("/")) {
+            if (segment.length() > 0) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+}
@@ -0,0 +1,219 @@
+package hudson.scm;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import hudson.model.TaskListener;
+import hudson.util.StreamTaskListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+
+import org.tmatesoft.svn.core.SVNLogEntry;
+
+/**
+ * Remembers the decisions of {@link DefaultSVNLogFilter} by repository UUID, credentials, revision and
+ * {@link DefaultSVNLogFilter#getFingerprint() filter settings}, so that the same revision is not filtered again by
+ * the next poll, the changelog, or other jobs with the same settings.
+ * <p>
+ * The changed paths of a revision don't depend on the URL the log was requested for, so the decision of a revision
+ * is the same for every module of the repository. They do depend on the credentials, as path-based authorization
+ * hides the paths a user can't read, see {@link CredentialsSVNAuthenticationProviderImpl#credentialsKeyOf}.
+ * In addition, the revision ranges of a module URL that polling found to have no significant change are remembered,
+ * so that polling doesn't fetch their log again.
+ * <p>
+ * The "Ignored revision" messages the filter printed for a decision are printed again when the decision is reused.
+ * Polls that skip a clean range don't read its log, so they print no such messages for it.
+ * <p>
+ * Both caches are bounded by {@link #SIZE} and forget the least recently used entries first.
+ */
+final class LogFilterDecisionCache {
+
+    private static final class Key {
+        final String uuid;
+        final String credentials;
+        final String fingerprint;
+        final long revision;
+
+        Key(String uuid, String credentials, String fingerprint, long revision) {
+            this.uuid = uuid;
+            this.credentials = credentials;
+            this.fingerprint = fingerprint;
+            this.revision = revision;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return revision == that.revision && uuid.equals(that.uuid) && credentials.equals(that.credentials)
+                    && fingerprint.equals(that.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return ((uuid.hashCode() * 31 + credentials.hashCode()) * 31 + fingerprint.hashCode()) * 31
+                    + (int) (revision ^ (revision >>> 32));
+        }
+    }
+
+    /**
+     * Whether a revision is included, and what the filter printed when it decided.
+     */
+    private static final class Decision {
+        final boolean included;
+        final String messages;
+
+        Decision(boolean included, String messages) {
+            this.included = included;
+            this.messages = messages;
+        }
+    }
+
+    private static final Map<Key, Decision> DECISIONS = new LinkedHashMap<Key, Decision>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Decision> eldest) {
+            return size() > SIZE;
+        }
+    };
+
+    /**
+     * Revision range without significant change, as {lowest, highest}, by UUID, credentials, URL and fingerprint.
+     */
+    private static final Map<String, long[]> CLEAN_RANGES = new LinkedHashMap<String, long[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+            return size() > SIZE;
+        }
+    };
+
+    private LogFilterDecisionCache() {}
+
+    /**
+     * Filters the entry, or reuses the decision made earlier for the same revision, credentials and filter settings.
+     *
+     * @param uuid
+     *      UUID of the repository of the entry, null if unknown, in which case nothing is cached.
+     * @param credentials
+     *      key of the credentials the log was read with, null if unknown, in which case nothing is cached.
+     */
+    static boolean isIncluded(SVNLogFilter filter, @CheckForNull String uuid, @CheckForNull String credentials, SVNLogEntry logEntry) {
+        String fingerprint = getFingerprint(filter);
+        if (uuid == null || credentials == null || fingerprint == null || logEntry.getRevision() < 0) {
+            return filter.isIncluded(logEntry);
+        }
+        Key key = new Key(uuid, credentials, fingerprint, logEntry.getRevision());
+        Decision decision;
+        synchronized (DECISIONS) {
+            decision = DECISIONS.get(key);
+        }
+        DefaultSVNLogFilter f = (DefaultSVNLogFilter) filter;
+        TaskListener listener = f.getTaskListener();
+        if (decision == null) {
+            decision = decide(f, logEntry);
+            synchronized (DECISIONS) {
+                DECISIONS.put(key, decision);
+            }
+        }
+        if (listener != null && decision.messages.length() > 0) {
+            listener.getLogger().print(decision.messages);
+        }
+        return decision.included;
+    }
+
+    /**
+     * Filters the entry, keeping what the filter prints.
+     */
+    private static Decision decide(DefaultSVNLogFilter filter, SVNLogEntry logEntry) {
+        TaskListener listener = filter.getTaskListener();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filter.setTaskListener(new StreamTaskListener(out, UTF_8));
+        boolean included;
+        try {
+            included = filter.isIncluded(logEntry);
+        } finally {
+            filter.setTaskListener(listener);
+        }
+        try {
+            return new Decision(included, out.toString(UTF_8.name()));
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Gets the highest revision up to which the module URL is known to have no significant change since the
+     * given revision.
+     *
+     * @return <tt>from - 1</tt> if nothing is known.
+     */
+    static long getCleanUpTo(SVNLogFilter filter, @CheckForNull String uuid, @CheckForNull String credentials, String url, long from) {
+        String fingerprint = getFingerprint(filter);
+        if (uuid == null || credentials == null || fingerprint == null) {
+            return from - 1;
+        }
+        long[] range;
+        synchronized (CLEAN_RANGES) {
+            range = CLEAN_RANGES.get(cleanRangeKey(uuid, credentials, url, fingerprint));
+        }
+        if (range != null && range[0] <= from && from <= range[1]) {
+            return range[1];
+        }
+        return from - 1;
+    }
+
+    /**
+     * Records that the revisions <tt>[from, to]</tt> of the module URL have no significant change.
+     */
+    static void putClean(SVNLogFilter filter, @CheckForNull String uuid, @CheckForNull String credentials, String url, long from, long to) {
+        String fingerprint = getFingerprint(filter);
+        if (uuid == null || credentials == null || fingerprint == null || from > to) {
+            return;
+        }
+        String key = cleanRangeKey(uuid, credentials, url, fingerprint);
+        synchronized (CLEAN_RANGES) {
+            long[] range = CLEAN_RANGES.get(key);
+            if (range != null && from <= range[1] + 1 && to >= range[0] - 1) {
+                CLEAN_RANGES.put(key, new long[] {Math.min(from, range[0]), Math.max(to, range[1])});
+            } else {
+                CLEAN_RANGES.put(key, new long[] {from, to});
+            }
+        }
+    }
+
+    private static String cleanRangeKey(String uuid, String credentials, String url, String fingerprint) {
+        return uuid + ' ' + credentials + ' ' + url + ' ' + fingerprint;
+    }
+
+    static void clear() {
+        synchronized (DECISIONS) {
+            DECISIONS.clear();
+        }
+        synchronized (CLEAN_RANGES) {
+            CLEAN_RANGES.clear();
+        }
+    }
+
+    /**
+     * Only the decisions of {@link DefaultSVNLogFilter} itself are known to depend on nothing but its settings.
+     */
+    @CheckForNull
+    private static String getFingerprint(SVNLogFilter filter) {
+        if (SIZE <= 0 || filter == null || filter.getClass() != DefaultSVNLogFilter.class) {
+            return null;
+        }
+        return ((DefaultSVNLogFilter) filter).getFingerprint();
+    }
+
+    /**
+     * Maximum number of decisions and of clean ranges that are kept. 0, the default, disables the cache,
+     * because repositories with the same UUID but different histories, such as copies restored from the same
+     * dump, would share decisions.
+     */
+    static int SIZE = Integer.getInteger(SubversionSCM.class.getName() + ".filterDecisionCacheSize", 0);
+}
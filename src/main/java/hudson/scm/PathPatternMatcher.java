@@ -0,0 +1,222 @@
+package hudson.scm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Tells whether a path matches any of a set of regular expressions, like calling
+ * {@link Pattern#matcher(CharSequence)}<tt>.matches()</tt> on each of them, but faster for many patterns.
+ * <p>
+ * Patterns that are plain paths are looked up in a set, and patterns that are a plain path followed by
+ * <tt>.*</tt> are looked up in a trie of their prefixes. The remaining patterns are combined into a single
+ * alternation. Matching doesn't allocate once the matcher of the current thread is created.
+ */
+final class PathPatternMatcher {
+
+    private final Set<String> literals = new HashSet<String>();
+    private final Node prefixes = new Node();
+    private boolean hasPrefixes;
+    /**
+     * Patterns that can't be combined, because they use flags, back references, named groups or quoting.
+     */
+    private final Pattern[] others;
+    private final Pattern combined;
+    private final ThreadLocal<Matcher> matcher;
+
+    PathPatternMatcher(Pattern[] patterns) {
+        List<Pattern> combinable = new ArrayList<Pattern>();
+        List<Pattern> others = new ArrayList<Pattern>();
+        for (Pattern pattern : patterns) {
+            String regex = pattern.pattern();
+            if (pattern.flags() == 0) {
+                String literal = literal(regex);
+                if (literal != null) {
+                    literals.add(literal);
+                    continue;
+                }
+                if (regex.endsWith(".*")) {
+                    String prefix = literal(regex.substring(0, regex.length() - 2));
+                    if (prefix != null) {
+                        prefixes.add(prefix);
+                        hasPrefixes = true;
+                        continue;
+                    }
+                }
+                if (canBeCombined(regex)) {
+                    combinable.add(pattern);
+                    continue;
+                }
+            }
+            others.add(pattern);
+        }
+        Pattern combined = null;
+        if (!combinable.isEmpty()) {
+            StringBuilder buf = new StringBuilder();
+            for (Pattern pattern : combinable) {
+                if (buf.length() > 0) {
+                    buf.append('|');
+                }
+                buf.append("(?:").append(pattern.pattern()).append(')');
+            }
+            try {
+                combined = Pattern.compile(buf.toString());
+            } catch (PatternSyntaxException e) {
+                // some construct canBeCombined doesn't know about, match the patterns one by one
+                others.addAll(combinable);
+            }
+        }
+        this.others = others.toArray(new Pattern[others.size()]);
+        this.combined = combined;
+        if (combined == null) {
+            matcher = null;
+        } else {
+            matcher = new ThreadLocal<Matcher>() {
+                @Override
+                protected Matcher initialValue() {
+                    return PathPatternMatcher.this.combined.matcher("");
+                }
+            };
+        }
+    }
+
+    /**
+     * @return true if the path matches at least one of the patterns.
+     */
+    boolean matches(String path) {
+        if (literals.contains(path)) {
+            return true;
+        }
+        if (hasPrefixes && prefixes.matches(path)) {
+            return true;
+        }
+        if (combined != null && matcher.get().reset(path).matches()) {
+            return true;
+        }
+        for (Pattern pattern : others) {
+            if (pattern.matcher(path).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the string the regular expression matches, if it matches exactly one string.
+     *
+     * @return null if the expression has any construct other than plain and escaped characters.
+     */
+    static String literal(String regex) {
+        StringBuilder literal = new StringBuilder(regex.length());
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    literal.append(regex.charAt(++i));
+                    continue;
+                }
+                return null;
+            }
+            if ("[](){}.*+?^$|".indexOf(c) >= 0) {
+                return null;
+            }
+            literal.append(c);
+        }
+        return literal.toString();
+    }
+
+    /**
+     * Back references are numbered, so they would point to the wrong group in the combined pattern,
+     * an unterminated quote would swallow the rest of it, and two patterns can't define a group of the same name.
+     * Lookbehinds, <tt>(?&lt;=</tt> and <tt>(?&lt;!</tt>, are fine.
+     */
+    private static boolean canBeCombined(String regex) {
+        for (int i = 0; i + 1 < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                char next = regex.charAt(i + 1);
+                if (Character.isDigit(next) || next == 'k' || next == 'Q') {
+                    return false;
+                }
+                i++;
+            } else if (c == '(' && regex.startsWith("?<", i + 1) && i + 3 < regex.length()
+                    && Character.isLetter(regex.charAt(i + 3))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether <tt>.*</tt> matches the rest of the path, i.e. there is no line terminator.
+     */
+    private static boolean matchesAnyRest(String path, int from) {
+        for (int i = from; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Character trie of the prefixes.
+     */
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private boolean terminal;
+
+        void add(String prefix) {
+            Node node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.child(prefix.charAt(i), true);
+            }
+            node.terminal = true;
+        }
+
+        private Node child(char c, boolean create) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            if (!create) {
+                return null;
+            }
+            index = -index - 1;
+            char[] k = new char[keys.length + 1];
+            Node[] n = new Node[children.length + 1];
+            System.arraycopy(keys, 0, k, 0, index);
+            System.arraycopy(children, 0, n, 0, index);
+            System.arraycopy(keys, index, k, index + 1, keys.length - index);
+            System.arraycopy(children, index, n, index + 1, children.length - index);
+            k[index] = c;
+            n[index] = new Node();
+            keys = k;
+            children = n;
+            return n[index];
+        }
+
+        boolean matches(String path) {
+            Node node = this;
+            for (int i = 0; ; i++) {
+                if (node.terminal && matchesAnyRest(path, i)) {
+                    return true;
+                }
+                if (i == path.length()) {
+                    return false;
+                }
+                node = node.child(path.charAt(i), false);
+                if (node == null) {
+                    return false;
+                }
+            }
+        }
+    }
+}
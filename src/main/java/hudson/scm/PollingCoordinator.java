@@ -0,0 +1,165 @@
+package hudson.scm;
+
+import hudson.model.TaskListener;
+import hudson.scm.SubversionSCM.SVNLogHandler;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.annotation.CheckForNull;
+
+import org.tmatesoft.svn.core.SVNCancelException;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationProvider;
+import org.tmatesoft.svn.core.wc.SVNInfo;
+
+/**
+ * Lets the jobs that poll the same module locations at the same time share the requests to the repository.
+ * <p>
+ * When several jobs ask for the <tt>svn info</tt> of the same URL, or for the significant changes of the same URL
+ * and revision range with the same filter settings, while such a request is running, they wait for it and use its
+ * result instead of sending their own. With {@link #WINDOW} set, results are also reused for that long after they
+ * arrived, so that the jobs an {@link hudson.triggers.SCMTrigger} fires one after another share them too.
+ * Requests are only shared between users of the same credentials, which includes their secrets, see
+ * {@link CredentialsSVNAuthenticationProviderImpl#getCredentialsKey()}.
+ * <p>
+ * Only identical requests are shared here. The logs of other URLs or baselines of the same repository are shared
+ * by {@link SharedLogCache}, which fetches the union of the ranges its waiting callers need once, per repository
+ * and credentials, and lets each of them filter its own range. The HEAD revision of a repository is shared by
+ * {@link RepositoryHeadCache}. Both have to be enabled as well to poll each repository only once.
+ */
+final class PollingCoordinator {
+
+    /**
+     * A request that is running, or that completed less than {@link #WINDOW} ago.
+     */
+    private static final class Flight<T> {
+        final FutureTask<T> task;
+        volatile long completed;
+
+        Flight(Callable<T> call) {
+            this.task = new FutureTask<T>(call);
+        }
+
+        boolean isExpired(long now) {
+            return task.isDone() && now - completed > WINDOW;
+        }
+    }
+
+    private static final ConcurrentMap<String, Flight<?>> FLIGHTS = new ConcurrentHashMap<String, Flight<?>>();
+
+    private PollingCoordinator() {}
+
+    /**
+     * Gets the <tt>svn info</tt> of the URL at HEAD, like {@link SubversionSCM#parseSvnInfo(SVNURL, ISVNAuthenticationProvider)}.
+     */
+    static SVNInfo getInfo(final SVNURL url, final ISVNAuthenticationProvider authProvider) throws SVNException {
+        String credentialsKey = CredentialsSVNAuthenticationProviderImpl.credentialsKeyOf(authProvider);
+        if (!ENABLED || credentialsKey == null) {
+            return SubversionSCM.parseSvnInfo(url, authProvider);
+        }
+        return coalesce("info " + url + ' ' + credentialsKey, new Callable<SVNInfo>() {
+            public SVNInfo call() throws SVNException {
+                return SubversionSCM.parseSvnInfo(url, authProvider);
+            }
+        });
+    }
+
+    /**
+     * Checks whether the revision range of the URL has significant changes,
+     * like {@link SVNLogHandler#findNonExcludedChanges(SVNURL, String, long, long, ISVNAuthenticationProvider)}.
+     *
+     * @param listener
+     *      receives the messages of the filter if this call is the one that reads the log.
+     * @return whether this range has significant changes, regardless of the earlier calls on the handler.
+     */
+    static boolean findNonExcludedChanges(final SVNLogHandler handler, TaskListener listener, final SVNURL url, @CheckForNull final String uuid,
+                                          final long from, final long to, final ISVNAuthenticationProvider authProvider) throws SVNException {
+        String credentialsKey = CredentialsSVNAuthenticationProviderImpl.credentialsKeyOf(authProvider);
+        String fingerprint = handler.getFilterFingerprint();
+        if (!ENABLED || credentialsKey == null || fingerprint == null || uuid == null) {
+            return handler.findNonExcludedChanges(url, uuid, from, to, authProvider);
+        }
+        // the owner works on a fresh handler, so that the result is the one of this range only
+        final SVNLogHandler fresh = handler.fork(listener);
+        return coalesce("log " + uuid + ' ' + url + ' ' + from + ' ' + to + ' ' + credentialsKey + ' ' + fingerprint,
+                new Callable<Boolean>() {
+                    public Boolean call() throws SVNException {
+                        return fresh.findNonExcludedChanges(url, uuid, from, to, authProvider);
+                    }
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T coalesce(String key, Callable<T> call) throws SVNException {
+        long now = System.currentTimeMillis();
+        purge(now);
+
+        Flight<T> flight = new Flight<T>(call);
+        Flight<T> existing;
+        while ((existing = (Flight<T>) FLIGHTS.putIfAbsent(key, flight)) != null && existing.isExpired(now)) {
+            FLIGHTS.remove(key, existing);
+        }
+        if (existing != null) {
+            flight = existing;
+        } else {
+            try {
+                flight.task.run();
+            } finally {
+                flight.completed = System.currentTimeMillis();
+                if (WINDOW <= 0) {
+                    FLIGHTS.remove(key, flight);
+                }
+            }
+        }
+
+        try {
+            return flight.task.get();
+        } catch (ExecutionException e) {
+            // don't share failures with later requests
+            FLIGHTS.remove(key, flight);
+            Throwable cause = e.getCause();
+            if (cause instanceof SVNException) {
+                throw (SVNException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new Error(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SVNCancelException();
+        }
+    }
+
+    private static void purge(long now) {
+        if (WINDOW <= 0 || FLIGHTS.size() < 1000) {
+            return;
+        }
+        for (Iterator<Map.Entry<String, Flight<?>>> it = FLIGHTS.entrySet().iterator(); it.hasNext();) {
+            if (it.next().getValue().isExpired(now)) {
+                it.remove();
+            }
+        }
+    }
+
+    static void clear() {
+        FLIGHTS.clear();
+    }
+
+    /**
+     * Whether concurrent polls share their requests.
+     */
+    static boolean ENABLED = Boolean.getBoolean(SubversionSCM.class.getName() + ".coalescePolling");
+
+    /**
+     * Milliseconds for which completed requests are still shared, 0 to only share running requests.
+     */
+    static long WINDOW = Long.getLong(SubversionSCM.class.getName() + ".coalescePollingWindow", 0);
+}
@@ -0,0 +1,200 @@
+package hudson.scm;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.wc.SVNInfo;
+
+/**
+ * Master-wide cache of the youngest (HEAD) revision of each repository.
+ * <p>
+ * Many jobs usually poll the same repository. With this cache only the first of them has to ask the server for the
+ * HEAD revision within {@link #TTL} milliseconds, the others can tell that nothing changed when the cached HEAD
+ * revision is not newer than their baseline. Post-commit notifications received by {@link SubversionRepositoryStatus}
+ * refresh the cache immediately.
+ * <p>
+ * At most {@link #SIZE} URLs are remembered, the least recently polled are forgotten first.
+ *
+ * @see CompareAgainstBaselineCallable
+ */
+final class RepositoryHeadCache {
+
+    /**
+     * Repositories by URL as seen by polling, least recently used first.
+     */
+    private static final Map<String, Repository> REPOSITORY_BY_URL = new LinkedHashMap<String, Repository>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Repository> eldest) {
+            return size() > SIZE;
+        }
+    };
+
+    /**
+     * Youngest revision by repository.
+     */
+    private static final ConcurrentMap<Repository, Head> HEADS = new ConcurrentHashMap<Repository, Head>();
+
+    private RepositoryHeadCache() {}
+
+    /**
+     * Returns the cached youngest revision of the repository that the given URL belongs to.
+     *
+     * @return the revision, or -1 if unknown or expired.
+     */
+    static long getYoungestRevision(String url) {
+        if (TTL <= 0) {
+            return -1;
+        }
+        Repository repository;
+        synchronized (REPOSITORY_BY_URL) {
+            repository = REPOSITORY_BY_URL.get(url);
+        }
+        if (repository == null) {
+            return -1;
+        }
+        Head head = HEADS.get(repository);
+        if (head == null || head.isExpired()) {
+            return -1;
+        }
+        return head.revision;
+    }
+
+    /**
+     * Records the result of a remote "svn info" on HEAD of the given URL.
+     */
+    static void record(String url, SVNInfo info) {
+        if (TTL <= 0 || info.getRepositoryUUID() == null || info.getRepositoryRootURL() == null) {
+            return;
+        }
+        Repository repository = new Repository(info.getRepositoryUUID(), info.getRepositoryRootURL());
+        synchronized (REPOSITORY_BY_URL) {
+            REPOSITORY_BY_URL.put(url, repository);
+        }
+        update(repository, info.getRevision().getNumber());
+        purgeExpired();
+    }
+
+    /**
+     * Called when a commit has been reported for the repository with the given UUID.
+     *
+     * @param revision
+     *      the committed revision, or -1 if the notification didn't tell.
+     *      In the latter case the cached revision of the repository is dropped.
+     */
+    static void notifyCommit(UUID uuid, long revision) {
+        String id = uuid.toString();
+        for (Iterator<Repository> it = HEADS.keySet().iterator(); it.hasNext();) {
+            Repository repository = it.next();
+            if (!repository.uuid.equals(id)) {
+                continue;
+            }
+            if (revision < 0) {
+                it.remove();
+            } else {
+                update(repository, revision);
+            }
+            LOGGER.log(Level.FINE, "Refreshed HEAD revision of {0} after commit notification", repository.root);
+        }
+    }
+
+    /**
+     * Drops all cached revisions.
+     */
+    static void clear() {
+        synchronized (REPOSITORY_BY_URL) {
+            REPOSITORY_BY_URL.clear();
+        }
+        HEADS.clear();
+    }
+
+    /**
+     * Drops the expired revisions once there are more repositories than URLs may be remembered.
+     */
+    private static void purgeExpired() {
+        if (HEADS.size() <= SIZE) {
+            return;
+        }
+        for (Iterator<Head> it = HEADS.values().iterator(); it.hasNext();) {
+            if (it.next().isExpired()) {
+                it.remove();
+            }
+        }
+    }
+
+    private static void update(Repository repository, long revision) {
+        if (revision < 0) {
+            return;
+        }
+        Head head = new Head(revision);
+        while (true) {
+            Head current = HEADS.putIfAbsent(repository, head);
+            if (current == null) {
+                return;
+            }
+            if (!current.isExpired() && current.revision > revision) {
+                // an older answer that arrived late must not win over a newer one
+                return;
+            }
+            if (HEADS.replace(repository, current, head)) {
+                return;
+            }
+        }
+    }
+
+    private static final class Repository {
+        final String uuid;
+        final String root;
+
+        Repository(String uuid, SVNURL root) {
+            this.uuid = uuid;
+            this.root = root.toDecodedString();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Repository)) return false;
+            Repository that = (Repository) o;
+            return uuid.equals(that.uuid) && root.equals(that.root);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * uuid.hashCode() + root.hashCode();
+        }
+    }
+
+    private static final class Head {
+        final long revision;
+        final long timestamp = System.currentTimeMillis();
+
+        Head(long revision) {
+            this.revision = revision;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - timestamp > TTL;
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(RepositoryHeadCache.class.getName());
+
+    /**
+     * How long, in milliseconds, a HEAD revision fetched from the server is trusted.
+     * Commits that are not reported through a post-commit hook are only noticed once the cached revision expires,
+     * so the cache is disabled (0) unless a TTL is configured.
+     */
+    static long TTL = Long.getLong(SubversionSCM.class.getName() + ".headRevisionCacheTtl", 0);
+
+    /**
+     * Maximum number of URLs whose repository is remembered.
+     */
+    static int SIZE = Integer.getInteger(SubversionSCM.class.getName() + ".headRevisionCacheSize", 1000);
+}
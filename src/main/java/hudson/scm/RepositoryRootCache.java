@@ -0,0 +1,298 @@
+package hudson.scm;
+
+import hudson.util.AtomicFileWriter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+
+import jenkins.model.Jenkins;
+
+/**
+ * Remembers the UUID of the repositories seen so far, by repository root URL.
+ * <p>
+ * The roots are kept in a trie over the '/' separated segments of the URL, so finding the repository of a URL
+ * takes time proportional to the length of the URL. The longest known root wins. The cache is safe for concurrent
+ * use, and it is saved to <tt>$JENKINS_HOME/caches</tt> so that it survives restarts. The file is read the first time
+ * the cache is used.
+ * <p>
+ * A repository may be relocated or recreated with another UUID, so an entry is only trusted for {@link #TTL}
+ * milliseconds after the repository was last asked for it. The caller then resolves the repository again and
+ * {@link #put}s the result, or {@link #remove}s the entry if that fails. At most {@link #SIZE} repositories are kept,
+ * the least recently used are dropped first.
+ */
+final class RepositoryRootCache {
+
+    /**
+     * A known repository.
+     */
+    static final class Entry {
+        final UUID uuid;
+        /**
+         * Root URL of the repository, as returned by {@link org.tmatesoft.svn.core.SVNURL#toString()}.
+         */
+        final String root;
+
+        /**
+         * When the repository was last asked for its UUID.
+         */
+        final long verified;
+        volatile long used;
+
+        Entry(UUID uuid, String root, long verified) {
+            this.uuid = uuid;
+            this.root = root;
+            this.verified = verified;
+            this.used = System.currentTimeMillis();
+        }
+
+        /**
+         * Whether the repository should be asked again whether this is still its UUID.
+         */
+        boolean isExpired() {
+            return System.currentTimeMillis() - verified > TTL;
+        }
+    }
+
+    private static final class Node {
+        final ConcurrentMap<String, Node> children = new ConcurrentHashMap<String, Node>();
+        volatile Entry entry;
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * Number of entries, changed while holding the lock of this cache.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    @CheckForNull
+    private final File file;
+
+    private volatile boolean loaded;
+
+    /**
+     * @param file
+     *      where the cache is saved, or null to keep it in memory only.
+     */
+    RepositoryRootCache(@CheckForNull File file) {
+        this.file = file;
+    }
+
+    /**
+     * Creates the cache stored under <tt>$JENKINS_HOME/caches</tt>.
+     */
+    static RepositoryRootCache create() {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        if (jenkins == null) {
+            return new RepositoryRootCache(null);
+        }
+        return new RepositoryRootCache(new File(new File(jenkins.getRootDir(), "caches"), "svn-repository-roots.txt"));
+    }
+
+    /**
+     * Finds the repository the given URL belongs to.
+     *
+     * @return the repository with the longest root URL that is the URL itself or a parent of it,
+     *      null if none is known.
+     */
+    @CheckForNull
+    Entry lookup(String url) {
+        load();
+        Node node = root;
+        Entry found = null;
+        for (String segment : url.split("/", -1)) {
+            node = node.children.get(segment);
+            if (node == null) {
+                break;
+            }
+            Entry entry = node.entry;
+            if (entry != null) {
+                found = entry;
+            }
+        }
+        if (found != null) {
+            found.used = System.currentTimeMillis();
+        }
+        return found;
+    }
+
+    /**
+     * Records the UUID the repository at the given root URL just reported.
+     */
+    void put(String rootUrl, UUID uuid) {
+        load();
+        synchronized (this) {
+            add(rootUrl, uuid, System.currentTimeMillis());
+            evict();
+        }
+        save();
+    }
+
+    /**
+     * Forgets the repository at the given root URL, e.g. because it can't be reached anymore.
+     */
+    void remove(String rootUrl) {
+        load();
+        boolean removed;
+        synchronized (this) {
+            removed = remove(root, rootUrl.split("/", -1), 0);
+        }
+        if (removed) {
+            save();
+        }
+    }
+
+    /**
+     * Removes the entry at the segments from the given position on, and the nodes left without entries.
+     *
+     * @return true if an entry was removed.
+     */
+    private boolean remove(Node node, String[] segments, int i) {
+        if (i == segments.length) {
+            if (node.entry == null) {
+                return false;
+            }
+            node.entry = null;
+            size.decrementAndGet();
+            return true;
+        }
+        Node child = node.children.get(segments[i]);
+        if (child == null || !remove(child, segments, i + 1)) {
+            return false;
+        }
+        if (child.entry == null && child.children.isEmpty()) {
+            node.children.remove(segments[i]);
+        }
+        return true;
+    }
+
+    /**
+     * Drops the least recently used entries beyond {@link #SIZE}.
+     */
+    private void evict() {
+        while (size.get() > SIZE) {
+            List<Entry> entries = new ArrayList<Entry>();
+            collect(root, entries);
+            Entry eldest = null;
+            for (Entry e : entries) {
+                if (eldest == null || e.used < eldest.used) {
+                    eldest = e;
+                }
+            }
+            if (eldest == null || !remove(root, eldest.root.split("/", -1), 0)) {
+                break;
+            }
+        }
+    }
+
+    // guarded by this
+    private void add(String rootUrl, UUID uuid, long verified) {
+        Node node = root;
+        for (String segment : rootUrl.split("/", -1)) {
+            Node child = node.children.get(segment);
+            if (child == null) {
+                Node created = new Node();
+                child = node.children.putIfAbsent(segment, created);
+                if (child == null) {
+                    child = created;
+                }
+            }
+            node = child;
+        }
+        if (node.entry == null) {
+            size.incrementAndGet();
+        }
+        node.entry = new Entry(uuid, rootUrl, verified);
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            if (file != null && file.isFile()) {
+                try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = r.readLine()) != null) {
+                        // uuid, root URL and, since it is saved, when the UUID was verified
+                        String[] fields = line.split(" ");
+                        if (fields.length == 2 || fields.length == 3) {
+                            try {
+                                add(fields[1], UUID.fromString(fields[0]), fields.length == 3 ? Long.parseLong(fields[2]) : 0);
+                            } catch (IllegalArgumentException e) {
+                                LOGGER.log(Level.FINE, "Ignoring malformed line in " + file + ": " + line, e);
+                            }
+                        }
+                    }
+                    evict();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to read the repository roots from " + file, e);
+                }
+            }
+            loaded = true;
+        }
+    }
+
+    private synchronized void save() {
+        if (file == null) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<Entry>();
+        collect(root, entries);
+        try {
+            file.getParentFile().mkdirs();
+            AtomicFileWriter w = new AtomicFileWriter(file.toPath(), StandardCharsets.UTF_8);
+            try {
+                for (Entry e : entries) {
+                    w.write(e.uuid + " " + e.root + " " + e.verified + "\n");
+                }
+                w.commit();
+            } finally {
+                w.abort();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save the repository roots to " + file, e);
+        }
+    }
+
+    private static void collect(Node node, List<Entry> entries) {
+        Entry entry = node.entry;
+        if (entry != null) {
+            entries.add(entry);
+        }
+        for (Map.Entry<String, Node> child : node.children.entrySet()) {
+            collect(child.getValue(), entries);
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(RepositoryRootCache.class.getName());
+
+    /**
+     * Milliseconds after which the UUID of a repository is verified again.
+     */
+    static long TTL = Long.getLong(SubversionSCM.class.getName() + ".repositoryRootCacheTtl", TimeUnit.DAYS.toMillis(1));
+
+    /**
+     * Maximum number of repositories that are remembered.
+     */
+    static int SIZE = Integer.getInteger(SubversionSCM.class.getName() + ".repositoryRootCacheSize", 1000);
+}
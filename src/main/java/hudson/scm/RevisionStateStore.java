@@ -0,0 +1,286 @@
+package hudson.scm;
+
+import hudson.Extension;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Keeps the revisions checked out by the recent builds of a job, so that polling and the changelog don't have to
+ * read <tt>revision.txt</tt> from the build directories.
+ * <p>
+ * The revisions of the most recent {@link #RETAINED} builds are kept in memory. They are saved to a binary file in
+ * the job directory, to which each checkout appends one record. The file is compacted when it is loaded.
+ * <tt>revision.txt</tt> is still written and read for the builds that are not in the store.
+ */
+final class RevisionStateStore {
+
+    private static final String FILE_NAME = "svn-revisions.bin";
+    private static final int MAGIC = 0x53564e52; // "SVNR"
+    private static final int VERSION = 1;
+    /**
+     * Entry count of the record that marks a build as deleted.
+     */
+    private static final int DELETED = -1;
+
+    /**
+     * A line of <tt>revision.txt</tt>.
+     */
+    static final class Entry {
+        final String url;
+        final long revision;
+        final boolean pinned;
+
+        Entry(String url, long revision, boolean pinned) {
+            this.url = url;
+            this.revision = revision;
+            this.pinned = pinned;
+        }
+    }
+
+    private static final Map<Job, RevisionStateStore> STORES = new WeakHashMap<Job, RevisionStateStore>();
+
+    private final File file;
+
+    /**
+     * Entries of the retained builds, by build number. Null until the file is read.
+     */
+    private TreeMap<Integer, List<Entry>> builds;
+
+    RevisionStateStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets the store of the given job.
+     */
+    static RevisionStateStore of(Job<?, ?> job) {
+        synchronized (STORES) {
+            File file = new File(job.getRootDir(), FILE_NAME);
+            RevisionStateStore store = STORES.get(job);
+            if (store == null || !store.file.equals(file)) {
+                // the job may have been renamed or moved
+                store = new RevisionStateStore(file);
+                STORES.put(job, store);
+            }
+            return store;
+        }
+    }
+
+    /**
+     * Gets the store of the job of the given build.
+     *
+     * @return null if the build doesn't belong to a job, such as a mock in a test.
+     */
+    @CheckForNull
+    static RevisionStateStore of(Run<?, ?> build) {
+        Job<?, ?> job = build.getParent();
+        if (job == null || job.getRootDir() == null) {
+            return null;
+        }
+        return of(job);
+    }
+
+    /**
+     * Gets the entries recorded for the given build.
+     *
+     * @return null if the build is not in the store.
+     */
+    @CheckForNull
+    synchronized List<Entry> get(int number) {
+        List<Entry> entries = load().get(number);
+        return entries == null ? null : Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Gets the number of the latest build in the store that is not newer than the given build.
+     *
+     * @return null if there is none.
+     */
+    @CheckForNull
+    synchronized Integer floor(int number) {
+        return load().floorKey(number);
+    }
+
+    /**
+     * Adds the entries of a checkout of the given build. A build that checks out several times gets all the entries.
+     */
+    synchronized void record(int number, List<Entry> entries) {
+        TreeMap<Integer, List<Entry>> builds = load();
+        List<Entry> existing = builds.get(number);
+        if (existing == null) {
+            existing = new ArrayList<Entry>(entries.size());
+            builds.put(number, existing);
+        }
+        existing.addAll(entries);
+        while (builds.size() > RETAINED) {
+            builds.pollFirstEntry();
+        }
+        append(number, entries);
+    }
+
+    /**
+     * Removes a deleted build, so that {@link #floor(int)} skips it like a build without <tt>revision.txt</tt>.
+     */
+    synchronized void forget(int number) {
+        if (load().remove(number) != null) {
+            append(number, null);
+        }
+    }
+
+    private void append(int number, @CheckForNull List<Entry> entries) {
+        try {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buf);
+            if (!file.exists() || file.length() == 0) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+            }
+            writeRecord(out, number, entries);
+            out.flush();
+            // a single write, so that a crash leaves at most one truncated record at the end
+            OutputStream os = new FileOutputStream(file, true);
+            try {
+                buf.writeTo(os);
+            } finally {
+                os.close();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save the revisions of build #" + number + " to " + file, e);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, int number, @CheckForNull List<Entry> entries) throws IOException {
+        out.writeInt(number);
+        if (entries == null) {
+            out.writeInt(DELETED);
+            return;
+        }
+        out.writeInt(entries.size());
+        for (Entry e : entries) {
+            out.writeUTF(e.url);
+            out.writeLong(e.revision);
+            out.writeBoolean(e.pinned);
+        }
+    }
+
+    private TreeMap<Integer, List<Entry>> load() {
+        if (builds != null) {
+            return builds;
+        }
+        builds = new TreeMap<Integer, List<Entry>>();
+        if (!file.exists()) {
+            return builds;
+        }
+        int records = 0;
+        boolean clean = false;
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    throw new IOException("Unknown format");
+                }
+                while (true) {
+                    int first = in.read();
+                    if (first < 0) {
+                        clean = true;
+                        break;
+                    }
+                    int number = (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+                    int count = in.readInt();
+                    records++;
+                    if (count == DELETED) {
+                        builds.remove(number);
+                        continue;
+                    }
+                    List<Entry> entries = new ArrayList<Entry>(count);
+                    for (int i = 0; i < count; i++) {
+                        entries.add(new Entry(in.readUTF(), in.readLong(), in.readBoolean()));
+                    }
+                    List<Entry> existing = builds.get(number);
+                    if (existing == null) {
+                        builds.put(number, entries);
+                    } else {
+                        existing.addAll(entries);
+                    }
+                    while (builds.size() > RETAINED) {
+                        builds.pollFirstEntry();
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Dropping the unreadable end of " + file, e);
+        }
+        if (!clean || records > RETAINED * 2) {
+            compact();
+        }
+        return builds;
+    }
+
+    /**
+     * Rewrites the file with the retained builds only.
+     */
+    private void compact() {
+        try {
+            File tmp = new File(file.getPath() + ".tmp");
+            DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                for (Map.Entry<Integer, List<Entry>> e : builds.entrySet()) {
+                    writeRecord(out, e.getKey(), e.getValue());
+                }
+            } finally {
+                out.close();
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to compact " + file, e);
+        }
+    }
+
+    /**
+     * Drops deleted builds from the store.
+     */
+    @Extension
+    public static class DeletedRunListener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onDeleted(Run<?, ?> r) {
+            Job<?, ?> job = r.getParent();
+            if (new File(job.getRootDir(), FILE_NAME).exists()) {
+                of(job).forget(r.getNumber());
+            }
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(RevisionStateStore.class.getName());
+
+    /**
+     * Number of builds per job whose revisions are kept.
+     */
+    static int RETAINED = Integer.getInteger(SubversionSCM.class.getName() + ".revisionStoreSize", 32);
+}
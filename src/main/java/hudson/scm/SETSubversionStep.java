@@ -134,7 +134,16 @@ public final class SETSubversionStep extends Step implements Serializable {
 
         // Find the last revision state from previous Builds
         SVNRevisionState baseline = null;
-        Run<?, ?> prev = run.getPreviousBuild();
+        Run<?, ?> prev = null;
+        RevisionStateStore store = RevisionStateStore.of(run);
+        Integer lastCheckout = store == null ? null : store.floor(run.getNumber() - 1);
+        if (lastCheckout != null) {
+            // builds after the last checkout can't have a revision state, so start from there
+            prev = run.getParent().getBuildByNumber(lastCheckout);
+        }
+        if (prev == null) {
+            prev = run.getPreviousBuild();
+        }
         while (prev != null && baseline == null) {
             baseline = prev.getAction(SVNRevisionState.class);
             prev = prev.getPreviousBuild();
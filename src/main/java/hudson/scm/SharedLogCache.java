@@ -0,0 +1,243 @@
+package hudson.scm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+
+import jenkins.model.Jenkins;
+
+import org.tmatesoft.svn.core.ISVNLogEntryHandler;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationProvider;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+
+/**
+ * Log entries of the recent revisions of each repository, shared by the polling and the changelog of all jobs
+ * on the master.
+ * <p>
+ * The log is fetched once from the repository root, with all changed paths and revision properties, and the
+ * log of any URL of the repository is then answered by selecting the revisions that changed something below it.
+ * Only the revisions that are not cached yet are fetched. The cache is kept per repository UUID and credentials,
+ * because path-based authorization can make different users see different logs. Callers that ask while the log of
+ * their repository is being fetched wait for it, and the next fetch covers all of their ranges at once, so polls of
+ * the same repository with different URLs or baselines share their requests.
+ * <p>
+ * The log of a URL follows copies, which the cached log can't do. So when the URL or one of its parents was added,
+ * deleted or replaced in the requested range, the caller reads the log from the server as before.
+ * Each repository keeps at most {@link #SIZE} revisions, the least recently used repositories are dropped first.
+ */
+final class SharedLogCache {
+
+    private static final class Repository {
+        /**
+         * Cached revision range, empty if {@code lo > hi}.
+         */
+        long lo = 0, hi = -1;
+        final TreeMap<Long, SVNLogEntry> entries = new TreeMap<Long, SVNLogEntry>();
+        /**
+         * Union of the ranges requested by the callers waiting for this repository, empty if {@code lo > hi}.
+         */
+        private final long[] requested = {Long.MAX_VALUE, -1};
+
+        void request(long from, long to) {
+            synchronized (requested) {
+                requested[0] = Math.min(requested[0], from);
+                requested[1] = Math.max(requested[1], to);
+            }
+        }
+
+        /**
+         * Gets the range to fetch for the caller of <tt>[from, to]</tt>, which covers the ranges of the callers
+         * that waited meanwhile, unless that is more than can be cached.
+         */
+        long[] takeRequested(long from, long to) {
+            synchronized (requested) {
+                long[] range = {Math.min(requested[0], from), Math.max(requested[1], to)};
+                requested[0] = Long.MAX_VALUE;
+                requested[1] = -1;
+                if (range[1] - range[0] + 1 > SIZE) {
+                    return new long[] {from, to};
+                }
+                return range;
+            }
+        }
+    }
+
+    private static final Map<String, Repository> REPOSITORIES = new LinkedHashMap<String, Repository>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Repository> eldest) {
+            return size() > MAX_REPOSITORIES;
+        }
+    };
+
+    private SharedLogCache() {}
+
+    /**
+     * Passes the log of the URL for the revisions <tt>[from, to]</tt> to the handler, like
+     * {@link org.tmatesoft.svn.core.wc.SVNLogClient#doLog} with changed paths and all revision properties would.
+     *
+     * @param newestFirst
+     *      whether the entries are passed from the newest to the oldest revision.
+     * @return false if the log can't be answered from the cache, in which case nothing was passed to the handler.
+     * @throws SVNException
+     *      thrown by the handler.
+     */
+    static boolean log(SvnClientManager manager, SVNURL url, @CheckForNull String uuid, ISVNAuthenticationProvider authProvider,
+                       long from, long to, boolean newestFirst, ISVNLogEntryHandler handler) throws SVNException {
+        if (SIZE <= 0 || uuid == null || from > to || to - from + 1 > SIZE || Jenkins.getInstanceOrNull() == null) {
+            return false;
+        }
+        // the key covers the secrets, so a folder's credentials with the same id or a changed password
+        // never see the log read with other credentials
+        String credentialsKey = CredentialsSVNAuthenticationProviderImpl.credentialsKeyOf(authProvider);
+        if (credentialsKey == null) {
+            return false;
+        }
+
+        List<SVNLogEntry> selected;
+        try {
+            SVNURL root = manager.createRepository(url, true).getRepositoryRoot(true);
+            String path = url.getPath().substring(root.getPath().length());
+            Repository repository = getRepository(uuid + ' ' + credentialsKey);
+            repository.request(from, to);
+            synchronized (repository) {
+                // one fetch for all the callers that waited for the previous one, whatever their URL and range
+                long[] range = repository.takeRequested(from, to);
+                fill(repository, manager, root, range[0], range[1]);
+                selected = select(repository, path, from, to);
+            }
+        } catch (SVNException e) {
+            // e.g. no read access to the repository root
+            LOGGER.log(Level.FINE, "Failed to get the log of " + url + " from the cache", e);
+            return false;
+        }
+        if (selected == null) {
+            return false;
+        }
+
+        if (newestFirst) {
+            Collections.reverse(selected);
+        }
+        for (SVNLogEntry entry : selected) {
+            handler.handleLogEntry(entry);
+        }
+        return true;
+    }
+
+    private static Repository getRepository(String key) {
+        synchronized (REPOSITORIES) {
+            Repository repository = REPOSITORIES.get(key);
+            if (repository == null) {
+                repository = new Repository();
+                REPOSITORIES.put(key, repository);
+            }
+            return repository;
+        }
+    }
+
+    /**
+     * Fetches the revisions of <tt>[from, to]</tt> that are not cached yet.
+     */
+    private static void fill(Repository repository, SvnClientManager manager, SVNURL root, long from, long to) throws SVNException {
+        if (repository.lo > repository.hi || to < repository.lo - 1 || from > repository.hi + 1) {
+            // not contiguous with what is cached
+            repository.entries.clear();
+            repository.lo = 0;
+            repository.hi = -1;
+            fetch(repository, manager, root, from, to);
+            repository.lo = from;
+            repository.hi = to;
+        } else {
+            if (from < repository.lo) {
+                fetch(repository, manager, root, from, repository.lo - 1);
+                repository.lo = from;
+            }
+            if (to > repository.hi) {
+                fetch(repository, manager, root, repository.hi + 1, to);
+                repository.hi = to;
+            }
+        }
+
+        // drop the revisions farthest from the requested range
+        while (repository.entries.size() > SIZE) {
+            if (repository.entries.firstKey() < from) {
+                repository.lo = repository.entries.pollFirstEntry().getKey() + 1;
+            } else {
+                repository.hi = repository.entries.pollLastEntry().getKey() - 1;
+            }
+        }
+    }
+
+    private static void fetch(final Repository repository, SvnClientManager manager, SVNURL root, long from, long to) throws SVNException {
+        manager.getLogClient().doLog(root, null, SVNRevision.UNDEFINED,
+                SVNRevision.create(from),
+                SVNRevision.create(to),
+                false, // Don't stop on copy.
+                true, // Report paths.
+                false, // Don't included merged revisions
+                0, // Retrieve log entries for unlimited number of revisions.
+                null, // Retrieve all revprops
+                new ISVNLogEntryHandler() {
+                    public void handleLogEntry(SVNLogEntry logEntry) {
+                        if (logEntry.getRevision() >= 0) {
+                            repository.entries.put(logEntry.getRevision(), logEntry);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Selects the revisions that changed the path or something below it.
+     *
+     * @return null if the log of the path can't be answered from the cache.
+     */
+    @CheckForNull
+    private static List<SVNLogEntry> select(Repository repository, String path, long from, long to) {
+        List<SVNLogEntry> selected = new ArrayList<SVNLogEntry>();
+        for (SVNLogEntry entry : repository.entries.subMap(from, true, to, true).values()) {
+            boolean affected = false;
+            for (SVNLogEntryPath changed : entry.getChangedPaths().values()) {
+                String p = changed.getPath();
+                boolean below = path.length() == 0 || p.equals(path) || p.startsWith(path + "/");
+                boolean above = p.equals(path) || path.startsWith(p.endsWith("/") ? p : p + "/");
+                if (above && changed.getType() != SVNLogEntryPath.TYPE_MODIFIED) {
+                    // the history of the path starts, ends or is replaced here
+                    return null;
+                }
+                affected |= below;
+            }
+            if (affected) {
+                selected.add(entry);
+            }
+        }
+        return selected;
+    }
+
+    static void clear() {
+        synchronized (REPOSITORIES) {
+            REPOSITORIES.clear();
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(SharedLogCache.class.getName());
+
+    /**
+     * Maximum number of revisions cached per repository. 0, the default, disables the cache.
+     */
+    static int SIZE = Integer.getInteger(SubversionSCM.class.getName() + ".sharedLogCacheSize", 0);
+
+    /**
+     * Maximum number of repositories, or repository and credentials pairs, that are cached.
+     */
+    static int MAX_REPOSITORIES = Integer.getInteger(SubversionSCM.class.getName() + ".sharedLogCacheRepositories", 32);
+}
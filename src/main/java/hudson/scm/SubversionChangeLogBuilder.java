@@ -32,6 +32,8 @@ import hudson.remoting.VirtualChannel;
 import hudson.FilePath.FileCallable;
 import hudson.model.Run;
 import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.tmatesoft.svn.core.SVNException;
@@ -39,8 +41,6 @@ import org.tmatesoft.svn.core.SVNURL;
 import org.tmatesoft.svn.core.ISVNLogEntryHandler;
 import org.tmatesoft.svn.core.SVNLogEntry;
 import org.tmatesoft.svn.core.auth.ISVNAuthenticationProvider;
-import org.tmatesoft.svn.core.wc.SVNClientManager;
-import org.tmatesoft.svn.core.wc.SVNLogClient;
 import org.tmatesoft.svn.core.wc.SVNRevision;
 import org.tmatesoft.svn.core.wc.SVNWCClient;
 import org.tmatesoft.svn.core.wc.SVNInfo;
@@ -54,8 +54,14 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.io.File;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.Nonnull;
 import jenkins.MasterToSlaveFileCallable;
 
@@ -111,30 +117,47 @@ public final class SubversionChangeLogBuilder {
         th.setDocumentLocator(DUMMY_LOCATOR);
         logHandler.startDocument();
 
+        // resolve the URLs of all modules and externals in one call to the agent
+        List<String> paths = new ArrayList<String>();
+        List<ISVNAuthenticationProvider> authProviders = new ArrayList<ISVNAuthenticationProvider>();
         for (ModuleLocation l : scm.getLocations(env, build)) {
             ISVNAuthenticationProvider authProvider =
                     CredentialsSVNAuthenticationProviderImpl
                             .createAuthenticationProvider(build.getParent(), scm, l, listener);
-            final SVNClientManager manager = SubversionSCM.createClientManager(authProvider).getCore();
-            try {
-                SVNLogClient svnlc = manager.getLogClient();
-                PathContext context = getUrlForPath(workspace.child(l.getLocalDir()), authProvider);
-                context.moduleWorkspacePath = l.getLocalDir();
-                changelogFileCreated |= buildModule(context, svnlc, logHandler);
-
-                // externals for this module location
-                List<SubversionSCM.External> externals = externalsMap.get(l.remote);
-                if (externals != null) {
-                  for (SubversionSCM.External ext : externals) {
-                    PathContext extContext = getUrlForPath(workspace.child(ext.path), authProvider);
-                    extContext.moduleWorkspacePath = ext.path;
-                    changelogFileCreated |= buildModule(extContext, svnlc, logHandler);
-                  }
-                }
-            } finally {
-                manager.dispose();
+            paths.add(l.getLocalDir());
+            authProviders.add(authProvider);
+
+            // externals for this module location
+            List<SubversionSCM.External> externals = externalsMap.get(l.remote);
+            if (externals != null) {
+              for (SubversionSCM.External ext : externals) {
+                paths.add(ext.path);
+                authProviders.add(authProvider);
+              }
+            }
+        }
+        List<PathContext> contexts = paths.isEmpty()
+                ? new ArrayList<PathContext>()
+                : workspace.act(new GetContextsForPaths(authProviders.get(0), paths));
+
+        List<LogRange> ranges = new ArrayList<LogRange>();
+        for (int i = 0; i < paths.size(); i++) {
+            PathContext context = contexts.get(i);
+            context.moduleWorkspacePath = paths.get(i);
+            addLogRange(ranges, context, authProviders.get(i));
+        }
+
+        ISVNLogEntryHandler handler = debug ? new DebugSVNLogHandler(logHandler) : logHandler;
+        if (PARALLELISM <= 1 || ranges.size() <= 1) {
+            for (LogRange range : ranges) {
+                logHandler.setContext(range.context);
+                logHandler.setCredentials(CredentialsSVNAuthenticationProviderImpl.credentialsKeyOf(range.authProvider));
+                range.fetch(handler);
             }
+        } else {
+            fetchInParallel(ranges, logHandler, handler);
         }
+        changelogFileCreated = !ranges.isEmpty();
 
         if(changelogFileCreated) {
             logHandler.endDocument();
@@ -143,11 +166,63 @@ public final class SubversionChangeLogBuilder {
         return changelogFileCreated;
     }
 
-    private PathContext getUrlForPath(FilePath path, ISVNAuthenticationProvider authProvider) throws IOException, InterruptedException {
-        return path.act(new GetContextForPath(authProvider));
+    /**
+     * Fetches the logs of all ranges at the same time, and writes them to the handler in the order of the ranges,
+     * so that the changelog is the same as when fetched one after another.
+     */
+    private void fetchInParallel(List<LogRange> ranges, DirAwareSVNXMLLogHandler logHandler, ISVNLogEntryHandler handler) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(PARALLELISM, ranges.size()),
+                new NamingThreadFactory(new DaemonThreadFactory(), "Subversion changelog of " + build));
+        try {
+            List<Future<List<SVNLogEntry>>> futures = new ArrayList<Future<List<SVNLogEntry>>>();
+            for (final LogRange range : ranges) {
+                futures.add(executor.submit(new Callable<List<SVNLogEntry>>() {
+                    public List<SVNLogEntry> call() throws IOException {
+                        final List<SVNLogEntry> entries = new ArrayList<SVNLogEntry>();
+                        range.fetch(new ISVNLogEntryHandler() {
+                            public void handleLogEntry(SVNLogEntry logEntry) {
+                                entries.add(logEntry);
+                            }
+                        });
+                        return entries;
+                    }
+                }));
+            }
+            for (int i = 0; i < ranges.size(); i++) {
+                LogRange range = ranges.get(i);
+                List<SVNLogEntry> entries;
+                try {
+                    entries = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new IOException("revision check failed on " + range.context.url, cause);
+                }
+                logHandler.setContext(range.context);
+                logHandler.setCredentials(CredentialsSVNAuthenticationProviderImpl.credentialsKeyOf(range.authProvider));
+                try {
+                    for (SVNLogEntry entry : entries) {
+                        handler.handleLogEntry(entry);
+                    }
+                } catch (SVNException e) {
+                    throw new IOException("revision check failed on " + range.context.url, e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
-    private boolean buildModule(PathContext context, SVNLogClient svnlc, DirAwareSVNXMLLogHandler logHandler) throws IOException {
+    /**
+     * Determines the revision range to compute the changelog for and adds it to the list.
+     * Nothing is added if there are no changes or the revisions are unknown.
+     */
+    private void addLogRange(List<LogRange> ranges, PathContext context, ISVNAuthenticationProvider authProvider) throws IOException {
         String url = context.url;
         PrintStream logger = listener.getLogger();
 
@@ -157,19 +232,19 @@ public final class SubversionChangeLogBuilder {
             Long prevRev = previousRevisions.get(url);
             if (prevRev == null) {
                 logger.println("No revision recorded for " + repoURL + " in the previous build");
-                return false;
+                return;
             }
 
             Long thisRev = thisRevisions.get(url);
             if (thisRev == null) {
                 listener.error("No revision found for " + repoURL + " in " + SubversionSCM.getRevisionFile(build) + "" +
                         ". Revision file contains: " + thisRevisions.keySet());
-                return false;
+                return;
             }
 
             if (thisRev.equals(prevRev)) {
                 logger.println("No changes for " + repoURL + " since the previous build");
-                return false;
+                return;
             }
 
             // handle case where previous workspace revision is newer than this revision
@@ -179,30 +254,59 @@ public final class SubversionChangeLogBuilder {
                 prevRev = temp;
             }
 
-            logHandler.setContext(context);
+            ranges.add(new LogRange(context, repoURL, prevRev + 1, thisRev, authProvider));
+        } catch (SVNException e) {
+            throw new IOException("revision check failed on " + url, e);
+        }
+    }
+
+    /**
+     * Revisions of one module or external to compute the changelog for.
+     */
+    private final class LogRange {
+        private final PathContext context;
+        private final SVNURL url;
+        private final long from;
+        private final long to;
+        private final ISVNAuthenticationProvider authProvider;
+
+        LogRange(PathContext context, SVNURL url, long from, long to, ISVNAuthenticationProvider authProvider) {
+            this.context = context;
+            this.url = url;
+            this.from = from;
+            this.to = to;
+            this.authProvider = authProvider;
+        }
 
+        void fetch(ISVNLogEntryHandler handler) throws IOException {
             if (debug) {
-                listener.getLogger().printf("Computing changelog of %1s from %2s to %3s%n",
-                        SVNURL.parseURIEncoded(url), prevRev + 1, thisRev);
+                listener.getLogger().printf("Computing changelog of %1s from %2s to %3s%n", url, from, to);
             }
 
-            svnlc.doLog(SVNURL.parseURIEncoded(url),
-                    null,
-                    SVNRevision.UNDEFINED,
-                    SVNRevision.create(prevRev + 1),
-                    SVNRevision.create(thisRev),
-                    false, // Don't stop on copy.
-                    true, // Report paths.
-                    0, // Retrieve log entries for unlimited number of revisions.
-                    debug ? new DebugSVNLogHandler(logHandler) : logHandler);
+            final SvnClientManager manager = SvnClientManagerPool.borrow(url, authProvider);
+            try {
+                if (!SharedLogCache.log(manager, url, context.uuid, authProvider, from, to, false, handler)) {
+                    manager.getLogClient().doLog(url,
+                            null,
+                            SVNRevision.UNDEFINED,
+                            SVNRevision.create(from),
+                            SVNRevision.create(to),
+                            false, // Don't stop on copy.
+                            true, // Report paths.
+                            0, // Retrieve log entries for unlimited number of revisions.
+                            handler);
+                }
+            } catch (SVNException e) {
+                SvnClientManagerPool.invalidate(manager);
+                throw new IOException("revision check failed on " + context.url, e);
+            } finally {
+                manager.dispose();
+            }
 
             if (debug) {
                 listener.getLogger().println("done");
             }
-        } catch (SVNException e) {
-            throw new IOException("revision check failed on " + url, e);
         }
-        return true;
     }
 
     /**
@@ -238,33 +342,55 @@ public final class SubversionChangeLogBuilder {
     justification = "Debugging environment variable is made editable, so it can be modified through the groovy console.")
     public static boolean debug = false;
 
+    /**
+     * Number of modules and externals whose changelog is fetched at the same time.
+     * The entries are still written in the order of the modules, so the changelog doesn't depend on this value.
+     */
+    static int PARALLELISM = Integer.getInteger(SubversionChangeLogBuilder.class.getName() + ".parallelism", 1);
+
     static {
         DUMMY_LOCATOR.setLineNumber(-1);
         DUMMY_LOCATOR.setColumnNumber(-1);
     }
 
-    private static class GetContextForPath extends MasterToSlaveFileCallable<PathContext> {
+    /**
+     * Resolves the URLs of the given paths of the workspace, sharing one client manager.
+     * The result has one element per path, which is null if the path can't be resolved.
+     */
+    private static class GetContextsForPaths extends MasterToSlaveFileCallable<List<PathContext>> {
         private final ISVNAuthenticationProvider authProvider;
+        private final List<String> paths;
 
-        public GetContextForPath(ISVNAuthenticationProvider authProvider) {
+        /**
+         * @param authProvider
+         *      only the working copy is looked at, so one provider is enough for all paths.
+         */
+        public GetContextsForPaths(ISVNAuthenticationProvider authProvider, List<String> paths) {
             this.authProvider = authProvider;
+            this.paths = paths;
         }
 
-        public PathContext invoke(File p, VirtualChannel channel) throws IOException {
-            final SvnClientManager manager = SubversionSCM.createClientManager(authProvider);
+        public List<PathContext> invoke(File ws, VirtualChannel channel) throws IOException {
+            final SvnClientManager manager = SvnClientManagerPool.borrow((SVNURL) null, authProvider);
             try {
                 final SVNWCClient svnwc = manager.getWCClient();
 
-                SVNInfo info;
-                try {
-                    info = svnwc.doInfo(p, SVNRevision.WORKING);
-                    String url = info.getURL().toDecodedString();
-                    String repoRoot = info.getRepositoryRootURL().toDecodedString();
-                    return new PathContext(url, repoRoot, null);
-                } catch (SVNException e) {
-                    e.printStackTrace();
-                    return null;
+                List<PathContext> contexts = new ArrayList<PathContext>(paths.size());
+                for (String path : paths) {
+                    File p = new File(ws, path);
+                    try {
+                        SVNInfo info = svnwc.doInfo(p, SVNRevision.WORKING);
+                        String url = info.getURL().toDecodedString();
+                        String repoRoot = info.getRepositoryRootURL().toDecodedString();
+                        PathContext context = new PathContext(url, repoRoot, null);
+                        context.uuid = info.getRepositoryUUID();
+                        contexts.add(context);
+                    } catch (SVNException e) {
+                        e.printStackTrace();
+                        contexts.add(null);
+                    }
                 }
+                return contexts;
             } finally {
                 manager.dispose();
             }
@@ -286,6 +412,7 @@ public final class SubversionChangeLogBuilder {
         public String url; // full URL to file
         public String repoUrl; // full URL to module root
         public String moduleWorkspacePath;  // path to module root relative from workspace root
+        public String uuid; // UUID of the repository, may be null
         private static final long serialVersionUID = 1L;
     }
 }
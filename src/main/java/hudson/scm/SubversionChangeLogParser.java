@@ -30,9 +30,21 @@ import hudson.util.Digester2;
 import org.apache.commons.digester.Digester;
 import org.xml.sax.SAXException;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 /**
  * {@link ChangeLogParser} for Subversion.
@@ -53,6 +65,20 @@ public class SubversionChangeLogParser extends ChangeLogParser {
     }
 
     @Override public SubversionChangeLogSet parse(@SuppressWarnings("rawtypes") Run build, RepositoryBrowser<?> browser, File changelogFile) throws IOException, SAXException {
+        if (!USE_DIGESTER && LAZY_THRESHOLD >= 0 && changelogFile.length() > LAZY_THRESHOLD) {
+            SubversionChangeLogSet lazy = parseLazily(build, browser, changelogFile, ignoreDirPropChanges);
+            if (lazy != null) {
+                return lazy;
+            }
+        }
+        List<LogEntry> r = USE_DIGESTER ? parseWithDigester(changelogFile) : parseWithStax(changelogFile);
+        return new SubversionChangeLogSet(build, browser, r, ignoreDirPropChanges);
+    }
+
+    /**
+     * Parses the changelog with Digester, as done before {@link #parseWithStax(File)} existed.
+     */
+    static List<LogEntry> parseWithDigester(File changelogFile) throws IOException {
         // http://svn.apache.org/repos/asf/subversion/trunk/subversion/svn/schema/log.rnc
 
         Digester digester = new Digester2();
@@ -82,7 +108,189 @@ public class SubversionChangeLogParser extends ChangeLogParser {
         for (LogEntry e : r) {
             e.finish();
         }
-        return new SubversionChangeLogSet(build, browser, r, ignoreDirPropChanges);
+        return r;
+    }
+
+    /**
+     * Parses the changelog in a single streaming pass, building the entries directly.
+     * <p>
+     * Paths of big merges repeat a lot between entries, and every entry appears once per module when externals
+     * are involved, so equal strings are shared to keep the memory footprint of huge changelogs down.
+     */
+    static List<LogEntry> parseWithStax(File changelogFile) throws IOException {
+        ArrayList<LogEntry> r = new ArrayList<LogEntry>();
+
+        InputStream in = new BufferedInputStream(new FileInputStream(changelogFile));
+        try {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                readEntries(reader, new HashMap<String,String>(), true, r);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse " + changelogFile,e);
+        } finally {
+            in.close();
+        }
+        return r;
     }
 
+    /**
+     * Parses a huge changelog into entries that only load their paths when asked for.
+     *
+     * @return null if the file can't be indexed, in which case it should be parsed normally.
+     */
+    static SubversionChangeLogSet parseLazily(Run<?,?> build, RepositoryBrowser<?> browser, File changelogFile, boolean ignoreDirPropChanges) throws IOException {
+        List<LogEntry> entries = new ArrayList<LogEntry>();
+        String encoding;
+        InputStream in = new BufferedInputStream(new FileInputStream(changelogFile));
+        try {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                encoding = reader.getCharacterEncodingScheme();
+                readEntries(reader, null, false, entries);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse " + changelogFile,e);
+        } finally {
+            in.close();
+        }
+
+        ChangeLogPathLoader loader = ChangeLogPathLoader.create(changelogFile, encoding, ignoreDirPropChanges);
+        if (loader == null || loader.getFragmentCount() != entries.size()) {
+            return null;
+        }
+
+        // merge duplicates (e.g. from svn:externals) like SubversionChangeLogSet.removeDuplicatedEntries does,
+        // but keep track of all the fragments so that their paths can be merged once loaded
+        Map<LogEntry,List<Integer>> groups = new LinkedHashMap<LogEntry,List<Integer>>();
+        for (int i = 0; i < entries.size(); i++) {
+            List<Integer> fragments = groups.get(entries.get(i));
+            if (fragments == null) {
+                fragments = new ArrayList<Integer>(1);
+                groups.put(entries.get(i), fragments);
+            }
+            fragments.add(i);
+        }
+        List<LogEntry> r = new ArrayList<LogEntry>(groups.size());
+        for (Map.Entry<LogEntry,List<Integer>> group : groups.entrySet()) {
+            int[] fragments = new int[group.getValue().size()];
+            for (int i = 0; i < fragments.length; i++) {
+                fragments[i] = group.getValue().get(i);
+            }
+            group.getKey().setPathLoader(loader, fragments);
+            r.add(group.getKey());
+        }
+        return new SubversionChangeLogSet(build, browser, r, ignoreDirPropChanges, loader);
+    }
+
+    /**
+     * Reads the <tt>logentry</tt> elements from the given reader.
+     *
+     * @param pool
+     *      equal strings are shared through this map, may be null if paths are not read.
+     * @param withPaths
+     *      false to skip the paths of the entries.
+     */
+    static void readEntries(XMLStreamReader reader, Map<String,String> pool, boolean withPaths, List<LogEntry> r) throws XMLStreamException {
+        LogEntry entry = null;
+        // depth of the current element below the <logentry>
+        int depth = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                if (entry != null && depth-- == 0) {
+                    entry.finish();
+                    r.add(entry);
+                    entry = null;
+                }
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            String name = reader.getLocalName();
+            if (entry == null) {
+                if (name.equals("logentry")) {
+                    entry = new LogEntry();
+                    depth = 0;
+                    String revision = reader.getAttributeValue(null, "revision");
+                    if (revision != null) {
+                        entry.setRevision(parseRevision(revision));
+                    }
+                }
+                continue;
+            }
+            if (depth == 0 && name.equals("author")) {
+                // getElementText consumes the end tag
+                entry.setUser(reader.getElementText().trim());
+            } else if (depth == 0 && name.equals("date")) {
+                entry.setDate(reader.getElementText().trim());
+            } else if (depth == 0 && name.equals("msg")) {
+                entry.setMsg(reader.getElementText().trim());
+            } else if (depth == 1 && withPaths && name.equals("path")) {
+                Path path = new Path();
+                String action = reader.getAttributeValue(null, "action");
+                if (action != null) {
+                    path.setAction(action);
+                }
+                String kind = reader.getAttributeValue(null, "kind");
+                if (kind != null) {
+                    path.setKind(intern(pool, kind));
+                }
+                String localPath = reader.getAttributeValue(null, "localPath");
+                if (localPath != null) {
+                    path.setLocalPath(intern(pool, localPath));
+                }
+                path.setValue(intern(pool, reader.getElementText().trim()));
+                entry.addPath(path);
+            } else {
+                depth++;
+            }
+        }
+    }
+
+    private static int parseRevision(String revision) {
+        try {
+            return Integer.parseInt(revision.trim());
+        } catch (NumberFormatException e) {
+            // like the bean conversion of Digester
+            return 0;
+        }
+    }
+
+    private static String intern(Map<String,String> pool, String s) {
+        if (pool == null) {
+            return s;
+        }
+        String pooled = pool.get(s);
+        if (pooled == null) {
+            pool.put(s, s);
+            return s;
+        }
+        return pooled;
+    }
+
+    static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        // changelog files are written by us, there's no need for DTDs or external entities
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Use the old Digester based parser instead of the streaming one.
+     */
+    static boolean USE_DIGESTER = Boolean.getBoolean(SubversionChangeLogParser.class.getName() + ".useDigester");
+
+    /**
+     * Change logs bigger than this many bytes only keep the paths of recently used entries in memory.
+     * A negative value disables this.
+     */
+    static long LAZY_THRESHOLD = Long.getLong(SubversionChangeLogParser.class.getName() + ".lazyThreshold", 10 * 1024 * 1024);
+
 }
@@ -38,11 +38,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import jenkins.triggers.SCMTriggerItem;
 
 import org.kohsuke.accmod.Restricted;
@@ -65,6 +65,11 @@ public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
     private Map<String,Long> revisionMap;
 
     private boolean ignoreDirPropChanges;
+
+    /**
+     * Loads the paths of the entries on demand for huge change logs, null otherwise.
+     */
+    private final ChangeLogPathLoader pathLoader;
     
     @Deprecated
     /*package*/ SubversionChangeLogSet(AbstractBuild<?,?> build, List<LogEntry> logs) {
@@ -74,9 +79,29 @@ public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
     /*package*/ SubversionChangeLogSet(Run<?,?> build, RepositoryBrowser<?> browser, List<LogEntry> logs, boolean ignoreDirPropChanges) {
         super(build, browser);
         this.ignoreDirPropChanges = ignoreDirPropChanges;
+        this.pathLoader = null;
         this.logs = prepareChangeLogEntries(logs);
     }
 
+    /**
+     * Creates a change log set whose entries load their paths on demand.
+     *
+     * @param logs
+     *      entries without duplicates, whose paths are handled by a {@link ChangeLogPathLoader}
+     *      that already takes care of merging duplicates and of ignoring directory property changes.
+     */
+    /*package*/ SubversionChangeLogSet(Run<?,?> build, RepositoryBrowser<?> browser, List<LogEntry> logs, boolean ignoreDirPropChanges, ChangeLogPathLoader loader) {
+        super(build, browser);
+        this.ignoreDirPropChanges = ignoreDirPropChanges;
+        this.pathLoader = loader;
+        List<LogEntry> items = new ArrayList<LogEntry>(logs);
+        Collections.sort(items, new ReverseByRevisionComparator());
+        for (LogEntry log : items) {
+            log.setParent(this);
+        }
+        this.logs = Collections.unmodifiableList(items);
+    }
+
     public boolean isEmptySet() {
         return logs.isEmpty();
     }
@@ -85,6 +110,13 @@ public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
         return logs;
     }
 
+    /**
+     * Whether the paths of the entries are loaded on demand.
+     */
+    boolean isLazy() {
+        return pathLoader != null;
+    }
+
 
     public Iterator<LogEntry> iterator() {
         return logs.iterator();
@@ -130,26 +162,36 @@ public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
      * @return filtered list without duplicated entries
      */
     static List<LogEntry> removeDuplicatedEntries(List<LogEntry> items) {
-        Set<LogEntry> entries = new HashSet<LogEntry>(items);
+        // the first of equal entries is kept, with its paths indexed by value
+        Map<LogEntry, Map<String, List<Path>>> entries = new LinkedHashMap<LogEntry, Map<String, List<Path>>>();
         for (LogEntry sourceEntry : items) {
+            Map<String, List<Path>> destinationPaths = entries.get(sourceEntry);
+            if (destinationPaths == null) {
+                destinationPaths = new HashMap<String, List<Path>>();
+                for (Path path : sourceEntry.getPaths()) {
+                    List<Path> paths = destinationPaths.get(path.value);
+                    if (paths == null) {
+                        paths = new ArrayList<Path>(1);
+                        destinationPaths.put(path.value, paths);
+                    }
+                    paths.add(path);
+                }
+                entries.put(sourceEntry, destinationPaths);
+            }
             // LogEntry equality does not consider paths, but some might have localPath attributes
-            // that would get lost by HashSet duplicate removal
-            for (LogEntry destinationEntry  : entries) {
-                if (sourceEntry.equals(destinationEntry)) {
-                    // get all local paths and set in destination
-                    for (Path sourcePath : sourceEntry.getPaths()) {
-                        if (sourcePath.localPath != null) {
-                            for (Path destinationPath : destinationEntry.getPaths()) {
-                                if (sourcePath.value.equals(destinationPath.value)) {
-                                    destinationPath.localPath = sourcePath.localPath;
-                                }
-                            }
+            // that would get lost by duplicate removal
+            for (Path sourcePath : sourceEntry.getPaths()) {
+                if (sourcePath.localPath != null) {
+                    List<Path> destinations = destinationPaths.get(sourcePath.value);
+                    if (destinations != null) {
+                        for (Path destinationPath : destinations) {
+                            destinationPath.localPath = sourcePath.localPath;
                         }
                     }
                 }
             }
         }
-        return new ArrayList<LogEntry>(entries);
+        return new ArrayList<LogEntry>(entries.keySet());
     }
 
     @Exported
@@ -183,6 +225,15 @@ public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
         private String msg;
         private List<Path> paths = new ArrayList<Path>();
 
+        /**
+         * For entries of huge change logs, loads {@link #paths} on demand. Null otherwise.
+         */
+        private ChangeLogPathLoader pathLoader;
+        /**
+         * Indexes of the <tt>logentry</tt> elements making up this entry, for {@link #pathLoader}.
+         */
+        private int[] fragments;
+
         /**
          * Gets the {@link SubversionChangeLogSet} to which this change set belongs.
          */
@@ -190,8 +241,21 @@ public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
             return (SubversionChangeLogSet)super.getParent();
         }
 
+        void setPathLoader(ChangeLogPathLoader pathLoader, int[] fragments) {
+            this.pathLoader = pathLoader;
+            this.fragments = fragments;
+        }
+
+        int[] getFragments() {
+            return fragments;
+        }
+
+        private List<Path> paths() {
+            return pathLoader != null ? pathLoader.getPaths(this) : paths;
+        }
+
         protected void removePropertyOnlyPaths() {
-          for (Iterator<Path> it = paths.iterator(); it.hasNext();) {
+          for (Iterator<Path> it = paths().iterator(); it.hasNext();) {
             Path path = it.next();
             if (path.isPropOnlyChange()) it.remove();
           }
@@ -242,10 +306,10 @@ public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
         public Collection<String> getAffectedPaths() {
             return new AbstractList<String>() {
                 public String get(int index) {
-                    return preparePath(paths.get(index).value);
+                    return preparePath(paths().get(index).value);
                 }
                 public int size() {
-                    return paths.size();
+                    return paths().size();
                 }
             };
         }
@@ -342,13 +406,13 @@ public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
          */
         @Exported
         public List<Path> getPaths() {
-            return paths;
+            return paths();
         }
         
         @Override
         public Collection<Path> getAffectedFiles() {
             Collection<Path> affectedFiles = new ArrayList<Path>();
-            for (Path p : paths) {
+            for (Path p : paths()) {
                 if (p.hasLocalPath()) {
                     affectedFiles.add(p);
                 }
@@ -358,6 +422,10 @@ public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
         }
         
         void finish() {
+            sortPaths(paths);
+        }
+
+        static void sortPaths(List<Path> paths) {
             Collections.sort(paths, new Comparator<Path>() {
                 @Override
                 public int compare(Path o1, Path o2) {
@@ -3,16 +3,22 @@ package hudson.scm;
 import static java.util.logging.Level.FINE;
 import static java.util.logging.Level.FINER;
 import static java.util.logging.Level.WARNING;
-import static javax.servlet.http.HttpServletResponse.SC_OK;
+import static javax.servlet.http.HttpServletResponse.SC_ACCEPTED;
 
 import hudson.Extension;
 import hudson.ExtensionList;
 import hudson.ExtensionPoint;
 import hudson.model.AbstractProject;
+import hudson.model.Item;
 import hudson.model.Job;
+import hudson.model.listeners.ItemListener;
 import hudson.scm.SubversionSCM.ModuleLocation;
 import hudson.scm.SubversionSCM.SvnInfo;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
 import hudson.triggers.SCMTrigger;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 import hudson.util.QueryParameterMap;
 
 import java.io.BufferedReader;
@@ -25,6 +31,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -32,6 +42,7 @@ import javax.servlet.ServletException;
 
 import jenkins.model.Jenkins;
 import jenkins.triggers.SCMTriggerItem;
+import org.acegisecurity.Authentication;
 import org.apache.commons.io.IOUtils;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
@@ -87,6 +98,8 @@ public class SubversionRepositoryStatus {
      * <p>
      * Because this URL is not guarded, we can't really trust the data that's sent to us. But we intentionally
      * don't protect this URL to simplify <tt>post-commit</tt> script set up.
+     * <p>
+     * The notification is only queued here and answered with 202, the listeners are called asynchronously.
      */
     @RequirePOST
     public void doNotifyCommit(StaplerRequest req, StaplerResponse rsp) throws ServletException, IOException {
@@ -128,6 +141,18 @@ public class SubversionRepositoryStatus {
             rev = Long.parseLong(revParam);
         }
 
+        RepositoryHeadCache.notifyCommit(uuid, rev);
+
+        // matching jobs may take a while, don't keep the hook script waiting
+        NOTIFICATIONS.submit(uuid, rev, affectedPath);
+
+        rsp.setStatus(SC_ACCEPTED);
+    }
+
+    /**
+     * Hands a notification to all the {@link Listener}s.
+     */
+    static void dispatch(UUID uuid, long rev, Set<String> affectedPath) {
         boolean listenerDidSomething = false;
         for (Listener listener : ExtensionList.lookup(Listener.class)) {
             try {
@@ -140,8 +165,144 @@ public class SubversionRepositoryStatus {
         }
 
         if (!listenerDidSomething) LOGGER.log(Level.WARNING, "No interest in change to repository UUID {0} found", uuid);
+    }
 
-        rsp.setStatus(SC_OK);
+    /**
+     * Waits until the notifications received so far have been dispatched, for tests.
+     *
+     * @return false if they are still not dispatched after the timeout.
+     */
+    static boolean awaitNotifications(long timeout) throws InterruptedException {
+        return NOTIFICATIONS.awaitIdle(timeout);
+    }
+
+    /**
+     * Queue of notifications waiting to be dispatched.
+     * <p>
+     * Notifications for the same repository that arrive while an earlier one is still queued are merged into it,
+     * so a burst of commits results in a single dispatch covering all the affected paths.
+     */
+    static class NotificationQueue {
+        private final Map<String, PendingNotification> pending = new HashMap<String, PendingNotification>();
+        /**
+         * Notifications submitted and not dispatched yet, guarded by {@link #pending}.
+         */
+        private int outstanding;
+        private final ThreadPoolExecutor executor;
+
+        NotificationQueue(int threads, int capacity) {
+            executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(capacity),
+                    new NamingThreadFactory(new DaemonThreadFactory(), "Subversion commit notifications"));
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        void submit(UUID uuid, long rev, Set<String> affectedPath) {
+            // notifications are processed with the permissions of whoever sent them
+            Authentication auth = Jenkins.getAuthentication();
+            final String key = uuid + " " + auth.getName();
+            final PendingNotification notification;
+            synchronized (pending) {
+                PendingNotification existing = pending.get(key);
+                if (existing != null) {
+                    existing.merge(rev, affectedPath);
+                    LOGGER.log(FINE, "Merged change to repository {0} into a queued notification", uuid);
+                    return;
+                }
+                notification = new PendingNotification(uuid, rev, affectedPath, auth);
+                pending.put(key, notification);
+                outstanding++;
+            }
+            try {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        synchronized (pending) {
+                            // later notifications for this repository start a new dispatch
+                            pending.remove(key);
+                        }
+                        try {
+                            notification.dispatch(NotificationQueue.this);
+                        } finally {
+                            done();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                synchronized (pending) {
+                    pending.remove(key);
+                }
+                LOGGER.log(FINE, "Notification queue is full, handling change to repository {0} right away", uuid);
+                try {
+                    notification.dispatch(this);
+                } finally {
+                    done();
+                }
+            }
+        }
+
+        /**
+         * Hands a notification to the listeners.
+         */
+        void dispatch(UUID uuid, long rev, Set<String> affectedPath) {
+            SubversionRepositoryStatus.dispatch(uuid, rev, affectedPath);
+        }
+
+        private void done() {
+            synchronized (pending) {
+                outstanding--;
+                pending.notifyAll();
+            }
+        }
+
+        /**
+         * Waits until the notifications submitted so far have been dispatched.
+         *
+         * @return false if they are still not dispatched after the timeout.
+         */
+        boolean awaitIdle(long timeout) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeout;
+            synchronized (pending) {
+                while (outstanding > 0) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    pending.wait(remaining);
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class PendingNotification {
+        private final UUID uuid;
+        private final Set<String> affectedPath;
+        private final Authentication auth;
+        private long rev;
+
+        PendingNotification(UUID uuid, long rev, Set<String> affectedPath, Authentication auth) {
+            this.uuid = uuid;
+            this.rev = rev;
+            this.affectedPath = new HashSet<String>(affectedPath);
+            this.auth = auth;
+        }
+
+        // guarded by NotificationQueue.pending
+        void merge(long rev, Set<String> affectedPath) {
+            this.affectedPath.addAll(affectedPath);
+            // an unknown revision (-1) means HEAD, which is newer than any known revision
+            if (this.rev != -1) {
+                this.rev = rev == -1 ? -1 : Math.max(this.rev, rev);
+            }
+        }
+
+        void dispatch(final NotificationQueue queue) {
+            ACL.impersonate(auth, new Runnable() {
+                public void run() {
+                    queue.dispatch(uuid, rev, affectedPath);
+                }
+            });
+        }
     }
 
     private static class SubversionRepoUUIDAndRootPath {
@@ -157,7 +318,7 @@ public class SubversionRepositoryStatus {
     @Extension
     public static class JobTriggerListenerImpl extends Listener {
 
-        private Map<String, UUID> remoteUUIDCache = new HashMap<String, UUID>();
+        private final RepositoryRootCache remoteUUIDCache = RepositoryRootCache.create();
 
         private JobProvider jobProvider = new JobProvider() {
             @SuppressWarnings("rawtypes")
@@ -166,57 +327,68 @@ public class SubversionRepositoryStatus {
             }
         };
 
+        /**
+         * Subversion locations of the jobs, so that a notification doesn't have to look at every job.
+         */
+        private final JobLocationIndex index = new JobLocationIndex();
+
+        /**
+         * Whether {@link #index} has been built from all the jobs.
+         */
+        private boolean indexed;
+
+        /**
+         * Jobs to index again, because they changed or their locations could not be resolved.
+         */
+        private final Set<Job> staleJobs = new HashSet<Job>();
+
+        /**
+         * Disabled jobs are not indexed, but checked again on each notification.
+         */
+        private final Set<Job> disabledJobs = new HashSet<Job>();
+
+        /**
+         * Jobs whose locations are being resolved by {@link #updateIndex()}.
+         */
+        private final Set<Job> indexingJobs = new HashSet<Job>();
+
+        /**
+         * Held while the index is updated, instead of the lock of this listener.
+         */
+        private final Object indexLock = new Object();
+
         // for tests
-        void setJobProvider(JobProvider jobProvider) {
+        synchronized void setJobProvider(JobProvider jobProvider) {
             this.jobProvider = jobProvider;
+            this.indexed = false;
         }
 
         private SubversionRepoUUIDAndRootPath remoteUUIDAndRootPathFromCacheOrFromSVN(Job job, SCM scm, ModuleLocation moduleLocation, String urlFromConfiguration) throws SVNException {
-            SubversionRepoUUIDAndRootPath uuidAndRootPath = null;
-            for (Map.Entry<String, UUID> e : remoteUUIDCache.entrySet()) {
-                String remoteRepoRootURL = e.getKey();
-                String remoteRepoRootURLWithSlash = remoteRepoRootURL + "/";
-                if (urlFromConfiguration.startsWith(remoteRepoRootURLWithSlash) || urlFromConfiguration.equals(remoteRepoRootURL)) {
-                    UUID uuid = e.getValue();
-                    String rootPath = SVNURL.parseURIDecoded(e.getKey()).getPath();
-                    uuidAndRootPath = new SubversionRepoUUIDAndRootPath(uuid, rootPath);
-
-                    LOGGER.finer("Using cached uuid for module location " + urlFromConfiguration + " of job "+ job);
-                    break;
-                }
+            RepositoryRootCache.Entry cached = remoteUUIDCache.lookup(urlFromConfiguration);
+            if (cached != null && !cached.isExpired()) {
+                LOGGER.finer("Using cached uuid for module location " + urlFromConfiguration + " of job "+ job);
+                return new SubversionRepoUUIDAndRootPath(cached.uuid, SVNURL.parseURIDecoded(cached.root).getPath());
             }
 
-            if (uuidAndRootPath == null) {
-                if (LOGGER.isLoggable(FINER)) {
-                    LOGGER.finer("Could not find " + urlFromConfiguration + " in " + remoteUUIDCache.keySet());
+            LOGGER.finer("Could not find the repository of " + urlFromConfiguration + " in the cache");
+            UUID remoteUUID;
+            SVNURL repositoryRoot;
+            try {
+                remoteUUID = moduleLocation.getUUID(job, scm);
+                repositoryRoot = moduleLocation.getRepositoryRoot(job, scm);
+            } catch (SVNException e) {
+                if (cached != null) {
+                    // the repository may be gone or relocated, don't keep matching notifications against it
+                    remoteUUIDCache.remove(cached.root);
                 }
-                UUID remoteUUID = moduleLocation.getUUID(job, scm);
-                SVNURL repositoryRoot = moduleLocation.getRepositoryRoot(job, scm);
-                remoteUUIDCache.put(repositoryRoot.toString(), remoteUUID);
-                uuidAndRootPath = new SubversionRepoUUIDAndRootPath(remoteUUID, repositoryRoot.getPath());
+                throw e;
             }
-            return uuidAndRootPath;
-        }
-
-        boolean doModuleLocationHasAPathFromAffectedPath(String configuredRepoFullPath, String rootRepoPath, Set<String> affectedPath) {
-            boolean containsAnAffectedPath = false;
-            if (configuredRepoFullPath.startsWith(rootRepoPath)) {
-                String remainingRepoPath = configuredRepoFullPath.substring(rootRepoPath.length());
-                if (remainingRepoPath.startsWith("/")) remainingRepoPath=remainingRepoPath.substring(1);
-                String remainingRepoPathSlash = remainingRepoPath + '/';
-
-                for (String path : affectedPath) {
-                    if (path.equals(remainingRepoPath) /*for files*/ || 
-                            path.startsWith(remainingRepoPathSlash) /*for dirs*/ ||
-                            remainingRepoPath.length() == 0 /*when someone is checking out the whole repo (that is, configuredRepoFullPath==rootRepoPath)*/) {
-                        // this project is possibly changed. poll now.
-                        // if any of the data we used was bogus, the trigger will not detect a change
-                        containsAnAffectedPath = true;
-                        break;
-                    }
-                }
+            if (cached != null && !cached.root.equals(repositoryRoot.toString())) {
+                remoteUUIDCache.remove(cached.root);
             }
-            return containsAnAffectedPath;
+            // replaces the cached UUID if the repository was recreated
+            remoteUUIDCache.put(repositoryRoot.toString(), remoteUUID);
+            return new SubversionRepoUUIDAndRootPath(remoteUUID, repositoryRoot.getPath());
         }
 
         private void scheduleImediatePollingOfJob(Job job, SCMTrigger trigger, List<SvnInfo> infos) {
@@ -232,11 +404,165 @@ public class SubversionRepositoryStatus {
             trigger.run(actions);
         }
 
+        /**
+         * Rebuilds the index entries of jobs that changed, or of all jobs when the index was invalidated.
+         * <p>
+         * The locations are resolved without holding the lock of this listener, as that may ask the repositories
+         * for their UUID, so that saving a job doesn't wait for it. Notifications still index one at a time, so
+         * that each one sees the jobs indexed by the earlier ones.
+         * <p>
+         * The index is shared by all notifications, so it is built with the system permissions and {@link #onNotify}
+         * only triggers the jobs that the sender of a notification can read.
+         */
+        private void updateIndex() {
+            synchronized (indexLock) {
+                try (ACLContext ctx = ACL.as(ACL.SYSTEM)) {
+                    List<Job> toIndex;
+                    synchronized (this) {
+                        if (!indexed) {
+                            index.clear();
+                            disabledJobs.clear();
+                            staleJobs.clear();
+                            toIndex = new ArrayList<Job>(this.jobProvider.getAllJobs());
+                            indexed = true;
+                        } else {
+                            toIndex = new ArrayList<Job>(staleJobs);
+                            for (Job p : disabledJobs) {
+                                // a job may be enabled without being reconfigured
+                                if (!((AbstractProject) p).isDisabled()) {
+                                    toIndex.add(p);
+                                }
+                            }
+                        }
+                        staleJobs.removeAll(toIndex);
+                        disabledJobs.removeAll(toIndex);
+                        indexingJobs.addAll(toIndex);
+                    }
+                    if (!toIndex.isEmpty()) {
+                        LOGGER.fine("Indexing subversion locations of " + toIndex.size() + " jobs");
+                    }
+                    for (Job p : toIndex) {
+                        IndexedJob entry = indexJob(p);
+                        synchronized (this) {
+                            // the job may have been deleted, or the whole index invalidated, in the meantime
+                            if (indexingJobs.remove(p)) {
+                                entry.apply();
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * The index entry of a job, resolved before it is added to the index.
+         */
+        private final class IndexedJob {
+            final Job job;
+            final List<List<JobLocationIndex.Location>> scms = new ArrayList<List<JobLocationIndex.Location>>();
+            boolean disabled;
+            boolean stale;
+
+            IndexedJob(Job job) {
+                this.job = job;
+            }
+
+            // guarded by JobTriggerListenerImpl.this
+            void apply() {
+                index.remove(job);
+                if (disabled) {
+                    disabledJobs.add(job);
+                    return;
+                }
+                if (stale) {
+                    staleJobs.add(job);
+                }
+                if (!scms.isEmpty()) {
+                    index.put(job, scms);
+                }
+            }
+        }
+
+        private IndexedJob indexJob(Job p) {
+            IndexedJob entry = new IndexedJob(p);
+            SCMTriggerItem scmTriggerItem = SCMTriggerItem.SCMTriggerItems.asSCMTriggerItem(p);
+            if (scmTriggerItem == null) {
+                return entry;
+            }
+            if (p instanceof AbstractProject && ((AbstractProject) p).isDisabled()) {
+                entry.disabled = true;
+                return entry;
+            }
+            String jobName = p.getName();
+            for (SCM scm : scmTriggerItem.getSCMs()) {
+                if (!(scm instanceof SubversionSCM)) continue;
+                SubversionSCM sscm = (SubversionSCM) scm;
+
+                List<JobLocationIndex.Location> locations = new ArrayList<JobLocationIndex.Location>();
+                try {
+                    for (ModuleLocation loc : sscm.getProjectLocations(p)) {
+                        String urlFromConfiguration = loc.getURL();
+                        try {
+                            SubversionRepoUUIDAndRootPath uuidAndRootPath = this.remoteUUIDAndRootPathFromCacheOrFromSVN(p, sscm, loc, urlFromConfiguration);
+                            String configuredRepoFullPath = loc.getSVNURL().getPath();
+                            String rootRepoPath = uuidAndRootPath.rootPath;
+                            String path = null;
+                            if (configuredRepoFullPath.startsWith(rootRepoPath)) {
+                                path = configuredRepoFullPath.substring(rootRepoPath.length());
+                                if (path.startsWith("/")) path = path.substring(1);
+                            }
+                            locations.add(new JobLocationIndex.Location(uuidAndRootPath.uuid, urlFromConfiguration, path));
+                        } catch (SVNCancelException e) {
+                            LOGGER.log(WARNING, "Failed to handle Subversion commit notification (was trying to access " + urlFromConfiguration + " of job " + jobName + "). If you are using svn:externals feature ensure that the credentials of the externals are added on the Additional Credentials field", e);
+                            entry.stale = true;
+                        } catch (SVNException e) {
+                            LOGGER.log(WARNING, "Failed to handle Subversion commit notification (was trying to access " + urlFromConfiguration + " of job " + jobName + ")", e);
+                            entry.stale = true;
+                        }
+                    }
+                } catch (IOException e) {
+                    LOGGER.log(WARNING, "Failed to handle Subversion commit notification (getting module locations failed for job " + jobName + ")", e);
+                    entry.stale = true;
+                }
+                entry.scms.add(locations);
+            }
+            return entry;
+        }
+
+        /**
+         * Marks the job to be indexed again before the next notification is handled.
+         */
+        synchronized void invalidate(Job job) {
+            staleJobs.add(job);
+        }
+
+        /**
+         * Drops the job from the index.
+         */
+        synchronized void remove(Job job) {
+            staleJobs.remove(job);
+            disabledJobs.remove(job);
+            indexingJobs.remove(job);
+            index.remove(job);
+        }
+
+        /**
+         * Rebuilds the whole index before the next notification is handled.
+         */
+        synchronized void invalidateAll() {
+            indexed = false;
+            indexingJobs.clear();
+        }
+
         @Override
         public boolean onNotify(UUID uuid, long rev, Set<String> affectedPath) {
-            boolean scmFound = false, triggerFound = false, uuidFound = false, pathFound = false;
+            boolean triggerFound = false, pathFound = false;
             LOGGER.fine("Starting subversion locations checks for all jobs");
-            for (Job p : this.jobProvider.getAllJobs()) {
+            updateIndex();
+
+            Map<Job, Set<JobLocationIndex.Location>> matches = index.lookup(uuid, affectedPath);
+            for (Map.Entry<Job, Set<JobLocationIndex.Location>> match : matches.entrySet()) {
+                Job p = match.getKey();
                 SCMTriggerItem scmTriggerItem = SCMTriggerItem.SCMTriggerItems.asSCMTriggerItem(p);
                 if (scmTriggerItem == null) {
                     continue;
@@ -244,65 +570,110 @@ public class SubversionRepositoryStatus {
                 if (p instanceof AbstractProject && ((AbstractProject) p).isDisabled()) {
                     continue;
                 }
-                String jobName = p.getName();
-                SCMS: for (SCM scm : scmTriggerItem.getSCMs()) {
-                    if (scm instanceof SubversionSCM) scmFound = true; else continue;
-
-                    SCMTrigger trigger = scmTriggerItem.getSCMTrigger();
-                    if (trigger!=null && !doesIgnorePostCommitHooks(trigger)) triggerFound = true; else continue;
-
-                    SubversionSCM sscm = (SubversionSCM) scm;
+                if (!p.hasPermission(Item.READ)) {
+                    // like the jobs Jenkins.getAllItems would have returned to the sender
+                    continue;
+                }
+                SCMTrigger trigger = scmTriggerItem.getSCMTrigger();
+                if (trigger!=null && !doesIgnorePostCommitHooks(trigger)) triggerFound = true; else continue;
 
+                List<List<JobLocationIndex.Location>> scms = index.get(p);
+                if (scms == null) {
+                    continue;
+                }
+                SCMS: for (List<JobLocationIndex.Location> locations : scms) {
+                    // the revision is reported for every location of this repository up to the first matching one
                     List<SvnInfo> infos = new ArrayList<SvnInfo>();
+                    for (JobLocationIndex.Location loc : locations) {
+                        if (!loc.uuid.equals(uuid)) continue;
 
-                    try {
-                        boolean projectMatches = false;
-                        for (ModuleLocation loc : sscm.getProjectLocations(p)) {
-                            String urlFromConfiguration = loc.getURL();
-                            //LOGGER.log(WARNING, "Checking uuid for module location + " + loc + " of job "+ p + " (urlFromConfiguration : " + urlFromConfiguration + ")");
-                        
-                            try {
-                                SubversionRepoUUIDAndRootPath uuidAndRootPath = this.remoteUUIDAndRootPathFromCacheOrFromSVN(p, sscm, loc, urlFromConfiguration);
-                                UUID remoteUUID = uuidAndRootPath.uuid;
-                                if (remoteUUID.equals(uuid)) uuidFound = true; else continue;
-
-                                String configuredRepoFullPath = loc.getSVNURL().getPath();
-                                String rootRepoPath = uuidAndRootPath.rootPath;
-                                if (this.doModuleLocationHasAPathFromAffectedPath(configuredRepoFullPath, rootRepoPath, affectedPath)) {
-                                    projectMatches = true;
-                                    pathFound = true;
-                                }
+                        if ( rev != -1 ) {
+                            infos.add(new SvnInfo(loc.url, rev));
+                        }
 
-                                if ( rev != -1 ) {
-                                    infos.add(new SvnInfo(loc.getURL(), rev));
-                                }
-                            } catch (SVNCancelException e) {
-                                LOGGER.log(WARNING, "Failed to handle Subversion commit notification (was trying to access " + urlFromConfiguration + " of job " + jobName + "). If you are using svn:externals feature ensure that the credentials of the externals are added on the Additional Credentials field", e);
-                            } catch (SVNException e) {
-                                LOGGER.log(WARNING, "Failed to handle Subversion commit notification (was trying to access " + urlFromConfiguration + " of job " + jobName + ")", e);
-                            }
-                            
-                            if (projectMatches) {
-                                this.scheduleImediatePollingOfJob(p, trigger, infos);
-                                break SCMS;
-                            }
+                        if (match.getValue().contains(loc)) {
+                            pathFound = true;
+                            this.scheduleImediatePollingOfJob(p, trigger, infos);
+                            break SCMS;
                         }
-                    } catch(IOException e) {
-                        LOGGER.log(WARNING, "Failed to handle Subversion commit notification (getting module locations failed for job " + jobName + ")", e);
                     }
                 }
             }
             LOGGER.fine("Ended subversion locations checks for all jobs");
 
+            boolean scmFound = !index.isEmpty();
             if (!scmFound)          LOGGER.warning("No subversion jobs found");
-            else if (!triggerFound) LOGGER.warning("No subversion jobs using SCM polling or all jobs using SCM polling are ignoring post-commit hooks");
-            else if (!uuidFound)    LOGGER.warning("No subversion jobs using repository: " + uuid);
+            else if (!index.hasRepository(uuid)) LOGGER.warning("No subversion jobs using repository: " + uuid);
+            else if (!matches.isEmpty() && !triggerFound) LOGGER.warning("No subversion jobs using SCM polling or all jobs using SCM polling are ignoring post-commit hooks");
             else if (!pathFound)    LOGGER.fine("No jobs found matching the modified files");
 
             return scmFound;
         }
     }
-    
+
+    /**
+     * Keeps the index of {@link JobTriggerListenerImpl} up to date as jobs are created, configured, moved and deleted.
+     */
+    @Extension
+    public static class JobIndexItemListener extends ItemListener {
+        @Override
+        public void onCreated(Item item) {
+            invalidate(item);
+        }
+
+        @Override
+        public void onCopied(Item src, Item item) {
+            invalidate(item);
+        }
+
+        @Override
+        public void onUpdated(Item item) {
+            invalidate(item);
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            invalidate(item);
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            JobTriggerListenerImpl listener = getListener();
+            if (listener != null && item instanceof Job) {
+                listener.remove((Job) item);
+            }
+        }
+
+        @Override
+        public void onLoaded() {
+            JobTriggerListenerImpl listener = getListener();
+            if (listener != null) {
+                listener.invalidateAll();
+            }
+        }
+
+        private static void invalidate(Item item) {
+            if (item instanceof Job) {
+                invalidateIndex((Job) item);
+            }
+        }
+
+        private static JobTriggerListenerImpl getListener() {
+            return ExtensionList.lookup(Listener.class).get(JobTriggerListenerImpl.class);
+        }
+    }
+
+    /**
+     * Marks the module locations of the job to be indexed again before the next notification is handled,
+     * e.g. after a build changed its externals or, for Pipeline jobs, the SCMs it checks out.
+     */
+    static void invalidateIndex(Job job) {
+        JobTriggerListenerImpl listener = JobIndexItemListener.getListener();
+        if (listener != null) {
+            listener.invalidate(job);
+        }
+    }
+
     private static boolean doesIgnorePostCommitHooks(SCMTrigger trigger) {
         if (IS_IGNORE_POST_COMMIT_HOOKS_METHOD == null)
             return false;
@@ -324,4 +695,17 @@ public class SubversionRepositoryStatus {
     }
 
     private static final Logger LOGGER = Logger.getLogger(SubversionRepositoryStatus.class.getName());
+
+    /**
+     * Number of threads dispatching commit notifications.
+     */
+    static int NOTIFICATION_THREADS = Integer.getInteger(SubversionRepositoryStatus.class.getName() + ".notificationThreads", 2);
+
+    /**
+     * Maximum number of repositories with queued notifications. Beyond that, notifications are handled on the
+     * request thread.
+     */
+    static int NOTIFICATION_QUEUE_SIZE = Integer.getInteger(SubversionRepositoryStatus.class.getName() + ".notificationQueueSize", 100);
+
+    private static final NotificationQueue NOTIFICATIONS = new NotificationQueue(NOTIFICATION_THREADS, NOTIFICATION_QUEUE_SIZE);
 }
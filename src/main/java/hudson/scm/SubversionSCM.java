@@ -140,6 +140,7 @@ import net.sf.json.JSONObject;
 
 import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.SerializationUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
@@ -171,6 +172,10 @@ import org.tmatesoft.svn.core.wc.SVNInfo;
 import org.tmatesoft.svn.core.wc.SVNRevision;
 import org.tmatesoft.svn.core.wc.SVNWCClient;
 import org.tmatesoft.svn.core.wc.SVNWCUtil;
+import org.tmatesoft.svn.core.wc2.ISvnObjectReceiver;
+import org.tmatesoft.svn.core.wc2.SvnCodec;
+import org.tmatesoft.svn.core.wc2.SvnGetInfo;
+import org.tmatesoft.svn.core.wc2.SvnTarget;
 
 import com.trilead.ssh2.DebugLogger;
 import com.trilead.ssh2.SCPClient;
@@ -786,7 +791,13 @@ private static final boolean WITH_TAGGING_ACTIONS = false;
      *      the one with the smallest revision number
      */
     /*package*/ static Map<String,Long> parseRevisionFile(Run<?,?> build, boolean findClosest, boolean prunePinnedExternals) throws IOException {
-        Map<String,Long> revisions = new HashMap<String,Long>(); // module -> revision
+        RevisionStateStore store = RevisionStateStore.of(build);
+        Integer recorded = store == null ? null : store.floor(build.getNumber());
+
+        if (recorded != null && (findClosest || build.getNumber() == recorded)) {
+            // every checkout since the store exists is recorded, so the builds in between have no revision file
+            return toRevisionMap(store.get(recorded), prunePinnedExternals);
+        }
 
         if (findClosest) {
             for (Run<?,?> b=build; b!=null; b=b.getPreviousBuild()) {
@@ -797,52 +808,61 @@ private static final boolean WITH_TAGGING_ACTIONS = false;
             }
         }
 
-        {// read the revision file of the build
-            File file = getRevisionFile(build);
-            if(!file.exists())
-                // nothing to compare against
-                return revisions;
+        // read the revision file of the build
+        File file = getRevisionFile(build);
+        if(!file.exists())
+            // nothing to compare against
+            return new HashMap<String,Long>();
 
-            BufferedReader br = new BufferedReader(new FileReader(file));
-            try {
-                String line;
-                while((line=br.readLine())!=null) {
-                	boolean isPinned = false;
-                	int indexLast = line.length();
-                	if (line.lastIndexOf("::p") == indexLast-3) {
-                		isPinned = true;
-                		indexLast -= 3;
-                	}
-                	int index = line.lastIndexOf('/');
-                    if(index<0) {
-                        continue;   // invalid line?
-                    }
-                    try {
-                    	String url = line.substring(0, index);
-                    	long revision = Long.parseLong(line.substring(index+1,indexLast));
-                    	Long oldRevision = revisions.get(url);
-                    	if (isPinned) {
-                    		if (!prunePinnedExternals) {
-                    			if (oldRevision == null)
-                    				// If we're writing pinned, only write if there are no unpinned
-                    				revisions.put(url, revision);
-                    		}
-                    	} else {
-                    		// unpinned
-                        	if (oldRevision == null || oldRevision > revision)
-                        		// For unpinned, take minimum
-                        		revisions.put(url, revision);
-                    	}
-                	} catch (NumberFormatException e) {
-                	    // perhaps a corrupted line.
-                	    LOGGER.log(WARNING, "Error parsing line " + line, e);
-                	}
+        List<RevisionStateStore.Entry> entries = new ArrayList<RevisionStateStore.Entry>();
+        BufferedReader br = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while((line=br.readLine())!=null) {
+                boolean isPinned = false;
+                int indexLast = line.length();
+                if (line.lastIndexOf("::p") == indexLast-3) {
+                    isPinned = true;
+                    indexLast -= 3;
+                }
+                int index = line.lastIndexOf('/');
+                if(index<0) {
+                    continue;   // invalid line?
+                }
+                try {
+                    entries.add(new RevisionStateStore.Entry(line.substring(0, index),
+                            Long.parseLong(line.substring(index+1,indexLast)), isPinned));
+                } catch (NumberFormatException e) {
+                    // perhaps a corrupted line.
+                    LOGGER.log(WARNING, "Error parsing line " + line, e);
                 }
-            } finally {
-                br.close();
             }
+        } finally {
+            br.close();
         }
+        return toRevisionMap(entries, prunePinnedExternals);
+    }
 
+    /**
+     * Computes the revision of each URL from the lines of a revision file.
+     */
+    private static Map<String,Long> toRevisionMap(List<RevisionStateStore.Entry> entries, boolean prunePinnedExternals) {
+        Map<String,Long> revisions = new HashMap<String,Long>(); // module -> revision
+        for (RevisionStateStore.Entry e : entries) {
+            Long oldRevision = revisions.get(e.url);
+            if (e.pinned) {
+                if (!prunePinnedExternals) {
+                    if (oldRevision == null)
+                        // If we're writing pinned, only write if there are no unpinned
+                        revisions.put(e.url, e.revision);
+                }
+            } else {
+                // unpinned
+                if (oldRevision == null || oldRevision > e.revision)
+                    // For unpinned, take minimum
+                    revisions.put(e.url, e.revision);
+            }
+        }
         return revisions;
     }
 
@@ -877,6 +897,7 @@ private static final boolean WITH_TAGGING_ACTIONS = false;
         try {
             List<SvnInfoP> pList = workspace.act(new BuildRevisionMapTask(build, this, listener, externalsForAll, env));
             List<SvnInfo> revList= new ArrayList<SvnInfo>(pList.size());
+            List<RevisionStateStore.Entry> entries = new ArrayList<RevisionStateStore.Entry>(pList.size());
             for (SvnInfoP p: pList) {
                 if (p.pinned) {
                     w.println( p.info.url +'/'+ p.info.revision + "::p");
@@ -884,7 +905,9 @@ private static final boolean WITH_TAGGING_ACTIONS = false;
                     w.println( p.info.url +'/'+ p.info.revision);
                 }
                 revList.add(p.info);
+                entries.add(new RevisionStateStore.Entry(p.info.url, p.info.revision, p.pinned));
             }
+            RevisionStateStore.of(build.getParent()).record(build.getNumber(), entries);
 
             if (WITH_TAGGING_ACTIONS) {
                 build.addAction(new SubversionTagAction(build,revList));
@@ -899,6 +922,8 @@ private static final boolean WITH_TAGGING_ACTIONS = false;
         synchronized (projectExternalsCache) {
             projectExternalsCache.put(build.getParent(), externalsForAll);
         }
+        // the externals, and for Pipeline the SCMs of the last build, are module locations of the job too
+        SubversionRepositoryStatus.invalidateIndex(build.getParent());
 
         if (changelogFile != null) {
             calcChangeLog(build, workspace, changelogFile, baseline, listener, externalsMap, env);
@@ -1279,10 +1304,14 @@ private static final boolean WITH_TAGGING_ACTIONS = false;
      *      The target to run "svn info".
      */
     static SVNInfo parseSvnInfo(SVNURL remoteUrl, ISVNAuthenticationProvider authProvider) throws SVNException {
-        final SvnClientManager manager = createClientManager(authProvider);
+        final SvnClientManager manager = SvnClientManagerPool.borrow(remoteUrl, authProvider);
         try {
             final SVNWCClient svnWc = manager.getWCClient();
             return svnWc.doInfo(remoteUrl, SVNRevision.HEAD, SVNRevision.HEAD);
+        } catch (SVNException e) {
+            // don't hand out a connection in an unknown state again
+            SvnClientManagerPool.invalidate(manager);
+            throw e;
         } finally {
             manager.dispose();
         }
@@ -1317,44 +1346,100 @@ private static final boolean WITH_TAGGING_ACTIONS = false;
         public List<SvnInfoP> invoke(File ws, VirtualChannel channel) throws IOException {
             List<SvnInfoP> revisions = new ArrayList<SvnInfoP>();
 
-            for (ModuleLocation module : locations) {
-                ISVNAuthenticationProvider authProvider = authProviders.get(module.remote);
-                if (authProvider == null) {
-                    authProvider = defaultAuthProvider;
-                }
-                final SvnClientManager manager = createClientManager(authProvider);
-                try {
-                    final SVNWCClient svnWc = manager.getWCClient();
+            // one manager per credentials, shared by the modules that use them
+            Map<Object, SvnClientManager> managers = new HashMap<Object, SvnClientManager>();
+            try {
+                for (ModuleLocation module : locations) {
+                    ISVNAuthenticationProvider authProvider = authProviders.get(module.remote);
+                    if (authProvider == null) {
+                        authProvider = defaultAuthProvider;
+                    }
+                    final SvnClientManager manager = getManager(managers, module.getURL(), authProvider);
                     // invoke the "svn info"
                     try {
-                        SvnInfo info =
-                                new SvnInfo(svnWc.doInfo(new File(ws, module.getLocalDir()), SVNRevision.WORKING));
+                        SvnInfo info = new SvnInfo(
+                                manager.getWCClient().doInfo(new File(ws, module.getLocalDir()), SVNRevision.WORKING));
                         revisions.add(new SvnInfoP(info, false));
                     } catch (SVNException e) {
                         e.printStackTrace(listener.error("Failed to parse svn info for " + module.remote));
                     }
-                } finally {
-                    manager.dispose();
                 }
-            }
-            final SvnClientManager manager = createClientManager(defaultAuthProvider);
-            try {
-                final SVNWCClient svnWc = manager.getWCClient();
-                for (External ext : externals) {
-                    try {
-                        SvnInfo info = new SvnInfo(svnWc.doInfo(new File(ws, ext.path), SVNRevision.WORKING));
-                        revisions.add(new SvnInfoP(info, ext.isRevisionFixed()));
-                    } catch (SVNException e) {
-                        e.printStackTrace(
-                                listener.error("Failed to parse svn info for external " + ext.url + " at " + ext.path));
+
+                if (!externals.isEmpty()) {
+                    final SvnClientManager manager = getManager(managers, null, defaultAuthProvider);
+                    Map<External, SVNInfo> infos = getExternalInfos(manager, ws);
+                    for (External ext : externals) {
+                        try {
+                            SVNInfo info = infos.get(ext);
+                            if (info == null) {
+                                info = manager.getWCClient().doInfo(new File(ws, ext.path), SVNRevision.WORKING);
+                            }
+                            revisions.add(new SvnInfoP(new SvnInfo(info), ext.isRevisionFixed()));
+                        } catch (SVNException e) {
+                            e.printStackTrace(
+                                    listener.error("Failed to parse svn info for external " + ext.url + " at " + ext.path));
+                        }
                     }
                 }
 
                 return revisions;
             } finally {
-                manager.dispose();
+                for (SvnClientManager manager : managers.values()) {
+                    manager.dispose();
+                }
+            }
+        }
+
+        private static SvnClientManager getManager(Map<Object, SvnClientManager> managers, SVNURL url, ISVNAuthenticationProvider authProvider) {
+            Object key = authProvider;
+            if (authProvider instanceof CredentialsSVNAuthenticationProviderImpl
+                    && ((CredentialsSVNAuthenticationProviderImpl) authProvider).getCredentialsKey() != null) {
+                key = ((CredentialsSVNAuthenticationProviderImpl) authProvider).getCredentialsKey();
+            }
+            SvnClientManager manager = managers.get(key);
+            if (manager == null) {
+                manager = SvnClientManagerPool.borrow(url, authProvider);
+                managers.put(key, manager);
+            }
+            return manager;
+        }
+
+        /**
+         * Gets the info of all externals with a single operation, so that the working copy database is opened once
+         * instead of once per external.
+         *
+         * @return
+         *      the info of the externals, by external. Empty if the operation fails, in which case the caller
+         *      falls back to one "svn info" per external to report the failing ones.
+         */
+        private Map<External, SVNInfo> getExternalInfos(SvnClientManager manager, File ws) {
+            final Map<File, External> byFile = new HashMap<File, External>();
+            SvnGetInfo getInfo = manager.getCore().getOperationFactory().createGetInfo();
+            getInfo.setRevision(SVNRevision.WORKING);
+            getInfo.setDepth(SVNDepth.EMPTY);
+            for (External ext : externals) {
+                File file = new File(ws, ext.path).getAbsoluteFile();
+                byFile.put(file, ext);
+                getInfo.addTarget(SvnTarget.fromFile(file));
+            }
+            final Map<External, SVNInfo> infos = new HashMap<External, SVNInfo>();
+            getInfo.setReceiver(new ISvnObjectReceiver<org.tmatesoft.svn.core.wc2.SvnInfo>() {
+                public void receive(SvnTarget target, org.tmatesoft.svn.core.wc2.SvnInfo info) throws SVNException {
+                    External ext = byFile.get(target.getFile().getAbsoluteFile());
+                    if (ext != null) {
+                        infos.put(ext, SvnCodec.infoOld(info));
+                    }
+                }
+            });
+            try {
+                getInfo.run();
+            } catch (SVNException e) {
+                LOGGER.log(Level.FINE, "Failed to get the info of all externals at once", e);
+                infos.clear();
             }
+            return infos;
         }
+
         private static final long serialVersionUID = 1L;
     }
 
@@ -1480,7 +1565,7 @@ private static final boolean WITH_TAGGING_ACTIONS = false;
 
         // figure out the remote revisions
         return channel.call(new CompareAgainstBaselineCallable(baseline, logHandler, project.getName(), listener,
-                defaultAuthProvider, authProviders, nodeName));
+                defaultAuthProvider, authProviders, nodeName, POLLING_CONCURRENCY_PER_HOST));
     }
 
     public SVNLogFilter createSVNLogFilter() {
@@ -1496,43 +1581,211 @@ private static final boolean WITH_TAGGING_ACTIONS = false;
 
         private boolean changesFound = false;
         private SVNLogFilter filter;
+        private TaskListener listener;
+        private final boolean pathRestricted = PATH_RESTRICTED_POLLING;
+        /**
+         * Set when the log is cancelled because a change was found.
+         */
+        private transient boolean stopped;
+        /**
+         * UUID of the repository whose log is read, null if unknown.
+         */
+        private transient String uuid;
+        /**
+         * Key of the credentials the log is read with, null if unknown.
+         */
+        private transient String credentials;
+        private final int logPageSize = POLLING_LOG_PAGE_SIZE;
+        /**
+         * Number of entries and oldest revision of the current page.
+         */
+        private transient int entriesRead;
+        private transient long oldestRevisionRead;
 
         SVNLogHandler(SVNLogFilter svnLogFilter, TaskListener listener) {
             this.filter = svnLogFilter;;
             this.filter.setTaskListener(listener);
+            this.listener = listener;
+        }
+
+        /**
+         * Creates an independent handler with a copy of the same filter that reports to the given listener,
+         * so that several locations can be checked at the same time.
+         */
+        SVNLogHandler fork(TaskListener listener) {
+            // don't drag the current listener into the copy
+            filter.setTaskListener(null);
+            try {
+                return new SVNLogHandler((SVNLogFilter) SerializationUtils.clone(filter), listener);
+            } finally {
+                filter.setTaskListener(this.listener);
+            }
         }
 
         public boolean isChangesFound() {
             return changesFound;
         }
 
+        /**
+         * Gets the settings the decisions of the filter depend on.
+         *
+         * @return null unless the filter is a plain {@link DefaultSVNLogFilter}.
+         */
+        String getFilterFingerprint() {
+            if (filter == null || filter.getClass() != DefaultSVNLogFilter.class) {
+                return null;
+            }
+            return ((DefaultSVNLogFilter) filter).getFingerprint();
+        }
+
         /**
          * Checks it the revision range [from,to] has any changes that are not excluded via exclusions.
          */
         public boolean findNonExcludedChanges(SVNURL url, long from, long to, ISVNAuthenticationProvider authProvider) throws SVNException {
+            return findNonExcludedChanges(url, null, from, to, authProvider);
+        }
+
+        /**
+         * Checks it the revision range [from,to] has any changes that are not excluded via exclusions.
+         *
+         * @param uuid
+         *      UUID of the repository, so that the decisions of earlier polls can be reused. May be null.
+         */
+        public boolean findNonExcludedChanges(SVNURL url, String uuid, long from, long to, ISVNAuthenticationProvider authProvider) throws SVNException {
             if (from>to)        return false; // empty revision range, meaning no change
 
             // if no exclusion rules are defined, don't waste time going through "svn log".
             if (!filter.hasExclusionRule())    return true;
 
-            final SvnClientManager manager = createClientManager(authProvider);
+            // don't read the log of the revisions already known to have no significant change
+            String credentials = CredentialsSVNAuthenticationProviderImpl.credentialsKeyOf(authProvider);
+            final long cleanUpTo = LogFilterDecisionCache.getCleanUpTo(filter, uuid, credentials, url.toString(), from);
+            if (cleanUpTo >= to) {
+                return isChangesFound();
+            }
+
+            this.uuid = uuid;
+            this.credentials = credentials;
+            final SvnClientManager manager = SvnClientManagerPool.borrow(url, authProvider);
             try {
-                manager.getLogClient().doLog(url, null, SVNRevision.UNDEFINED,
-                        SVNRevision.create(from), // get log entries from the local revision + 1
-                        SVNRevision.create(to), // to the remote revision
-                        false, // Don't stop on copy.
-                        true, // Report paths.
-                        false, // Don't included merged revisions
-                        0, // Retrieve log entries for unlimited number of revisions.
-                        null, // Retrieve all revprops
-                        this);
+                boolean done = readCachedLog(manager, url, authProvider, cleanUpTo + 1, to);
+                String[] revisionProperties = null; // all revprops
+                if (!done && pathRestricted && filter instanceof DefaultSVNLogFilter) {
+                    DefaultSVNLogFilter f = (DefaultSVNLogFilter) filter;
+                    revisionProperties = f.getRevisionPropertyNames();
+                    try {
+                        String[] paths = getRestrictedPaths(manager, url, f.getIncludedPathPrefixes());
+                        if (paths != null) {
+                            readLog(manager, url, paths, cleanUpTo + 1, to, revisionProperties);
+                            done = true;
+                        }
+                    } catch (SVNException e) {
+                        // e.g. the repository root can't be read, or one of the paths doesn't exist anymore
+                        LOGGER.log(FINE, "Failed to read the log of the included regions of " + url + ", reading the whole log", e);
+                    }
+                }
+                if (!done) {
+                    readLog(manager, url, null, cleanUpTo + 1, to, revisionProperties);
+                }
+            } catch (SVNException e) {
+                SvnClientManagerPool.invalidate(manager);
+                throw e;
             } finally {
                 manager.dispose();
             }
 
+            if (!stopped) {
+                LogFilterDecisionCache.putClean(filter, uuid, credentials, url.toString(), from, to);
+            }
             return isChangesFound();
         }
 
+        /**
+         * Reads the log from {@link SharedLogCache} until the first change that is not excluded.
+         *
+         * @return false if the log is not available from the cache.
+         */
+        private boolean readCachedLog(SvnClientManager manager, SVNURL url, ISVNAuthenticationProvider authProvider, long from, long to) throws SVNException {
+            stopped = false;
+            try {
+                return SharedLogCache.log(manager, url, uuid, authProvider, from, to, true, this);
+            } catch (SVNCancelException e) {
+                if (!stopped) {
+                    throw e;
+                }
+                return true;
+            }
+        }
+
+        /**
+         * Reads the log until the first change that is not excluded.
+         * <p>
+         * The log is read from the newest revision backwards, {@link #POLLING_LOG_PAGE_SIZE} entries at a time,
+         * so that a change is found without transferring the log of the whole range first.
+         */
+        private void readLog(SvnClientManager manager, SVNURL url, String[] paths, long from, long to, String[] revisionProperties) throws SVNException {
+            stopped = false;
+            try {
+                if (logPageSize <= 0) {
+                    manager.getLogClient().doLog(url, paths, SVNRevision.UNDEFINED,
+                            SVNRevision.create(from), // get log entries from the local revision + 1
+                            SVNRevision.create(to), // to the remote revision
+                            false, // Don't stop on copy.
+                            true, // Report paths.
+                            false, // Don't included merged revisions
+                            0, // Retrieve log entries for unlimited number of revisions.
+                            revisionProperties,
+                            this);
+                    return;
+                }
+                long start = to;
+                while (start >= from) {
+                    entriesRead = 0;
+                    manager.getLogClient().doLog(url, paths, SVNRevision.UNDEFINED,
+                            SVNRevision.create(start), // newest first
+                            SVNRevision.create(from),
+                            false, // Don't stop on copy.
+                            true, // Report paths.
+                            false, // Don't included merged revisions
+                            logPageSize,
+                            revisionProperties,
+                            this);
+                    if (entriesRead < logPageSize) {
+                        break;
+                    }
+                    start = oldestRevisionRead - 1;
+                }
+            } catch (SVNCancelException e) {
+                if (!stopped) {
+                    throw e;
+                }
+                // the rest of the response was not read, so the connection can't be reused
+                SvnClientManagerPool.invalidate(manager);
+            }
+        }
+
+        /**
+         * Converts the fixed prefixes of the included regions to paths relative to the module.
+         *
+         * @return null if the log can't be restricted, because a prefix is outside of the module or is the module itself.
+         */
+        private static String[] getRestrictedPaths(SvnClientManager manager, SVNURL url, List<String> prefixes) throws SVNException {
+            if (prefixes == null) {
+                return null;
+            }
+            SVNRepository repository = manager.createRepository(url, true);
+            String root = repository.getRepositoryRoot(true).getPath();
+            String module = url.getPath().substring(root.length());
+            List<String> paths = new ArrayList<String>();
+            for (String prefix : prefixes) {
+                if (!prefix.startsWith(module + "/")) {
+                    return null;
+                }
+                paths.add(prefix.substring(module.length() + 1));
+            }
+            return paths.toArray(new String[paths.size()]);
+        }
+
         /**
          * Handles a log entry passed.
          * Check for log entries that should be excluded from triggering a build.
@@ -1544,8 +1797,15 @@ private static final boolean WITH_TAGGING_ACTIONS = false;
          * @throws org.tmatesoft.svn.core.SVNException
          */
         public void handleLogEntry(SVNLogEntry logEntry) throws SVNException {
-            if (filter.isIncluded(logEntry)) {
+            if (logEntry.getRevision() >= 0) {
+                entriesRead++;
+                oldestRevisionRead = logEntry.getRevision();
+            }
+            if (LogFilterDecisionCache.isIncluded(filter, uuid, credentials, logEntry)) {
                 changesFound = true;
+                // one change is enough to trigger a build, don't read the rest of the log
+                stopped = true;
+                throw new SVNCancelException();
             }
         }
 
@@ -3281,6 +3541,24 @@ private static final boolean WITH_TAGGING_ACTIONS = false;
      */
     private static boolean POLL_FROM_MASTER = Boolean.getBoolean(SubversionSCM.class.getName() + ".pollFromMaster");
 
+    /**
+     * Maximum number of module locations of a single job that are polled at the same time against one repository host.
+     * The default of 1 keeps the old behaviour of polling the locations one after another.
+     */
+    static int POLLING_CONCURRENCY_PER_HOST = Integer.getInteger(SubversionSCM.class.getName() + ".pollingConcurrencyPerHost", 1);
+
+    /**
+     * Restricts the log read during polling to the fixed directories of the included regions, when all of them have one
+     * below the module location.
+     */
+    static boolean PATH_RESTRICTED_POLLING = Boolean.getBoolean(SubversionSCM.class.getName() + ".pathRestrictedPolling");
+
+    /**
+     * Number of log entries fetched at a time, newest first, when polling looks for changes that are not excluded.
+     * 0 or less reads the whole range in one request, oldest first.
+     */
+    static int POLLING_LOG_PAGE_SIZE = Integer.getInteger(SubversionSCM.class.getName() + ".pollingLogPageSize", 100);
+
     /**
      * If set to non-null, read configuration from this directory instead of "~/.subversion".
      */
@@ -0,0 +1,247 @@
+package hudson.scm;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationProvider;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+
+/**
+ * Pool of {@link SvnClientManager}s, so that short operations like polling, changelog computation and
+ * "svn info" don't pay for a new connection and authentication every time.
+ * <p>
+ * Idle managers are kept per repository server and credentials. A borrowed manager goes back to the pool when it is
+ * {@link SvnClientManager#dispose() disposed}. Managers idle for longer than {@link #IDLE_TIMEOUT} are disposed,
+ * and managers idle for longer than {@link #VALIDATE_AFTER} have their connection tested before they are handed out.
+ * <p>
+ * Only {@link CredentialsSVNAuthenticationProviderImpl} can be pooled, as the pool needs to know which credentials
+ * the provider represents. Other providers get a fresh manager just like
+ * {@link SubversionSCM#createClientManager(ISVNAuthenticationProvider)}.
+ * <p>
+ * The pool is per JVM, so it works the same on the master and on agents.
+ */
+final class SvnClientManagerPool {
+
+    private static final ConcurrentMap<String, Deque<PooledSvnClientManager>> IDLE =
+            new ConcurrentHashMap<String, Deque<PooledSvnClientManager>>();
+
+    private SvnClientManagerPool() {}
+
+    /**
+     * Gets a manager to talk to the repository of the given URL.
+     * The caller must {@link SvnClientManager#dispose() dispose} it once done, which returns it to the pool.
+     *
+     * @param url
+     *      The repository URL the manager will talk to, or null for working copy only operations.
+     */
+    static SvnClientManager borrow(SVNURL url, ISVNAuthenticationProvider authProvider) {
+        String key = getKey(url, authProvider);
+        if (key == null) {
+            return SubversionSCM.createClientManager(authProvider);
+        }
+        evictIdle();
+
+        Deque<PooledSvnClientManager> idle = getIdle(key);
+        while (true) {
+            PooledSvnClientManager manager;
+            synchronized (idle) {
+                manager = idle.pollFirst();
+            }
+            if (manager == null) {
+                break;
+            }
+            if (manager.isIdleFor(IDLE_TIMEOUT) || (url != null && manager.isIdleFor(VALIDATE_AFTER) && !manager.isHealthy(url))) {
+                manager.destroy();
+                continue;
+            }
+            manager.activate(authProvider);
+            return manager;
+        }
+
+        ISVNAuthenticationManager sam = SubversionSCM.createSvnAuthenticationManager(authProvider);
+        return new PooledSvnClientManager(key,
+                SVNClientManager.newInstance(SubversionSCM.createDefaultSVNOptions(), sam), sam);
+    }
+
+    /**
+     * @see #borrow(SVNURL, ISVNAuthenticationProvider)
+     */
+    static SvnClientManager borrow(String url, ISVNAuthenticationProvider authProvider) {
+        SVNURL svnurl = null;
+        if (url != null) {
+            try {
+                svnurl = SVNURL.parseURIDecoded(url);
+            } catch (SVNException e) {
+                // not pooled by server then, the operation itself will report the problem
+            }
+        }
+        return borrow(svnurl, authProvider);
+    }
+
+    /**
+     * Marks a borrowed manager as unusable, for example after an interrupted operation left its connection
+     * in an unknown state. It will be disposed instead of being returned to the pool.
+     */
+    static void invalidate(SvnClientManager manager) {
+        if (manager instanceof PooledSvnClientManager) {
+            ((PooledSvnClientManager) manager).broken = true;
+        }
+    }
+
+    /**
+     * Disposes all idle managers.
+     */
+    static void clear() {
+        for (Deque<PooledSvnClientManager> idle : IDLE.values()) {
+            drain(idle, -1);
+        }
+    }
+
+    private static void release(PooledSvnClientManager manager) {
+        if (manager.broken || MAX_IDLE_PER_HOST <= 0) {
+            manager.destroy();
+            return;
+        }
+        manager.idleSince = System.currentTimeMillis();
+        Deque<PooledSvnClientManager> idle = getIdle(manager.key);
+        boolean pooled;
+        synchronized (idle) {
+            pooled = idle.size() < MAX_IDLE_PER_HOST;
+            if (pooled) {
+                // most recently used first, so that the rest can expire
+                idle.addFirst(manager);
+            }
+        }
+        if (!pooled) {
+            manager.destroy();
+        }
+    }
+
+    private static Deque<PooledSvnClientManager> getIdle(String key) {
+        Deque<PooledSvnClientManager> idle = IDLE.get(key);
+        if (idle == null) {
+            Deque<PooledSvnClientManager> created = new ArrayDeque<PooledSvnClientManager>();
+            idle = IDLE.putIfAbsent(key, created);
+            if (idle == null) {
+                idle = created;
+            }
+        }
+        return idle;
+    }
+
+    /**
+     * Disposes the managers that have been idle for too long, in all pools.
+     */
+    private static void evictIdle() {
+        for (Map.Entry<String, Deque<PooledSvnClientManager>> e : IDLE.entrySet()) {
+            drain(e.getValue(), IDLE_TIMEOUT);
+        }
+    }
+
+    private static void drain(Deque<PooledSvnClientManager> idle, long maxIdle) {
+        Deque<PooledSvnClientManager> expired = new ArrayDeque<PooledSvnClientManager>();
+        synchronized (idle) {
+            for (Iterator<PooledSvnClientManager> it = idle.descendingIterator(); it.hasNext();) {
+                PooledSvnClientManager manager = it.next();
+                if (!manager.isIdleFor(maxIdle)) {
+                    break;
+                }
+                it.remove();
+                expired.add(manager);
+            }
+        }
+        for (PooledSvnClientManager manager : expired) {
+            manager.destroy();
+        }
+    }
+
+    /**
+     * Managers are shared between users of the same credentials talking to the same server.
+     *
+     * @return null if the provider can't be pooled.
+     */
+    private static String getKey(SVNURL url, ISVNAuthenticationProvider authProvider) {
+        if (!(authProvider instanceof CredentialsSVNAuthenticationProviderImpl)) {
+            return null;
+        }
+        String credentialsKey = ((CredentialsSVNAuthenticationProviderImpl) authProvider).getCredentialsKey();
+        if (credentialsKey == null) {
+            return null;
+        }
+        String server = url == null ? "" : url.getProtocol() + "://" + url.getHost() + ":" + url.getPort();
+        return server + " " + credentialsKey;
+    }
+
+    private static final class PooledSvnClientManager extends SvnClientManager {
+        private final String key;
+        private final ISVNAuthenticationManager authManager;
+        private volatile long idleSince;
+        private volatile boolean broken;
+
+        PooledSvnClientManager(String key, SVNClientManager core, ISVNAuthenticationManager authManager) {
+            super(core);
+            this.key = key;
+            this.authManager = authManager;
+        }
+
+        /**
+         * Prepares the manager for a new borrower, who may carry a different listener for authentication messages.
+         */
+        void activate(ISVNAuthenticationProvider authProvider) {
+            authManager.setAuthenticationProvider(authProvider);
+            broken = false;
+        }
+
+        boolean isIdleFor(long millis) {
+            return System.currentTimeMillis() - idleSince > millis;
+        }
+
+        boolean isHealthy(SVNURL url) {
+            try {
+                getCore().createRepository(url, true).testConnection();
+                return true;
+            } catch (SVNException e) {
+                LOGGER.log(Level.FINE, "Discarding pooled connection to " + url, e);
+                return false;
+            }
+        }
+
+        /**
+         * Returns this manager to the pool.
+         */
+        @Override
+        public void dispose() {
+            release(this);
+        }
+
+        void destroy() {
+            super.dispose();
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(SvnClientManagerPool.class.getName());
+
+    /**
+     * Maximum number of idle managers kept per repository server and credentials. 0 disables pooling.
+     */
+    static int MAX_IDLE_PER_HOST = Integer.getInteger(SubversionSCM.class.getName() + ".clientManagerPool.maxIdlePerHost", 4);
+
+    /**
+     * Idle managers are disposed after this many milliseconds.
+     */
+    static long IDLE_TIMEOUT = Long.getLong(SubversionSCM.class.getName() + ".clientManagerPool.idleTimeout", 60 * 1000);
+
+    /**
+     * Managers idle for longer than this many milliseconds have their connection tested before being reused.
+     */
+    static long VALIDATE_AFTER = Long.getLong(SubversionSCM.class.getName() + ".clientManagerPool.validateAfter", 15 * 1000);
+}
@@ -0,0 +1,280 @@
+package jenkins.scm.impl.subversion;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+import org.tmatesoft.svn.core.SVNNodeKind;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The nodes of a repository seen by all {@link SVNRepositoryView}s of this Jenkins, by credentials, path and revision.
+ * <p>
+ * The cache lives in memory and is shared by all sessions to the same repository. It keeps at most {@link #SIZE}
+ * nodes and forgets the oldest first. Changes are saved to <tt>caches/svn-&lt;uuid&gt;.cache</tt> in the background,
+ * at most every {@link #SNAPSHOT_DELAY} seconds, and the file is read back the first time the repository is used.
+ * <p>
+ * The node of a path at HEAD is kept with revision {@code -1}, it is only used while the server can't be reached.
+ * The listings of directories read at HEAD are also kept by the revision each directory was last changed in, see
+ * {@link #getListing}. They are stored with a negative revision below {@code -1}, apart from the nodes at a revision.
+ */
+final class NodeCache {
+
+    private static final int MAGIC = 0x53564e43; // "SVNC"
+    private static final int VERSION = 1;
+
+    private static final ConcurrentMap<String, NodeCache> CACHES = new ConcurrentHashMap<String, NodeCache>();
+
+    private static final class Key {
+        private final String credentials;
+        private final String path;
+        private final long revision;
+
+        Key(String credentials, String path, long revision) {
+            this.credentials = credentials;
+            this.path = path;
+            this.revision = revision;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return revision == that.revision && path.equals(that.path) && credentials.equals(that.credentials);
+        }
+
+        @Override
+        public int hashCode() {
+            return (credentials.hashCode() * 31 + path.hashCode()) * 31 + (int) (revision ^ (revision >>> 32));
+        }
+    }
+
+    @CheckForNull
+    private final File file;
+    private final ConcurrentMap<Key, SVNRepositoryView.NodeEntry> nodes =
+            new ConcurrentHashMap<Key, SVNRepositoryView.NodeEntry>();
+    /**
+     * The keys in the order they were added, for eviction.
+     */
+    private final Queue<Key> order = new ConcurrentLinkedQueue<Key>();
+    private final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+
+    NodeCache(@CheckForNull File file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets the cache of the repository with the given UUID.
+     */
+    @NonNull
+    static NodeCache of(@NonNull String uuid) {
+        NodeCache cache = CACHES.get(uuid);
+        if (cache != null) {
+            return cache;
+        }
+        synchronized (CACHES) {
+            cache = CACHES.get(uuid);
+            if (cache == null) {
+                Jenkins jenkins = Jenkins.getInstanceOrNull();
+                File file = jenkins == null ? null : new File(new File(jenkins.getRootDir(), "caches"), "svn-" + uuid + ".cache");
+                cache = new NodeCache(file);
+                if (file != null) {
+                    deleteMapDBFiles(file.getParentFile(), uuid);
+                    // read the snapshot before anyone can see the cache half filled
+                    cache.load();
+                }
+                CACHES.put(uuid, cache);
+            }
+            return cache;
+        }
+    }
+
+    @CheckForNull
+    SVNRepositoryView.NodeEntry get(@NonNull String credentials, @NonNull String path, long revision) {
+        return nodes.get(new Key(credentials, path, revision));
+    }
+
+    void put(@NonNull String credentials, @NonNull String path, long revision, @NonNull SVNRepositoryView.NodeEntry node) {
+        add(new Key(credentials, path, revision), node);
+        scheduleSnapshot();
+    }
+
+    /**
+     * Gets the listing of a directory read at HEAD while the directory was last changed in the given revision.
+     * <p>
+     * This is not the same as the node at that revision: the path may not exist yet at the revision a directory
+     * was last changed in, e.g. in a copied directory, whose subdirectories keep the revisions of the copy source.
+     */
+    @CheckForNull
+    SVNRepositoryView.NodeEntry getListing(@NonNull String credentials, @NonNull String path, long changed) {
+        return nodes.get(new Key(credentials, path, -2 - changed));
+    }
+
+    void putListing(@NonNull String credentials, @NonNull String path, long changed, @NonNull SVNRepositoryView.NodeEntry node) {
+        add(new Key(credentials, path, -2 - changed), node);
+        scheduleSnapshot();
+    }
+
+    private void add(Key key, SVNRepositoryView.NodeEntry node) {
+        if (nodes.put(key, node) == null) {
+            order.add(key);
+            while (nodes.size() > SIZE) {
+                Key eldest = order.poll();
+                if (eldest == null) {
+                    break;
+                }
+                nodes.remove(eldest);
+            }
+        }
+    }
+
+    private void scheduleSnapshot() {
+        if (file == null || SNAPSHOT_DELAY < 0 || !snapshotScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        Timer.get().schedule(new Runnable() {
+            public void run() {
+                snapshotScheduled.set(false);
+                save();
+            }
+        }, SNAPSHOT_DELAY, TimeUnit.SECONDS);
+    }
+
+    void load() {
+        if (!file.isFile()) {
+            return;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    return;
+                }
+                while (in.readBoolean()) {
+                    String credentials = in.readUTF();
+                    String path = in.readUTF();
+                    long revision = in.readLong();
+                    add(new Key(credentials, path, revision), readNode(in));
+                }
+            } finally {
+                in.close();
+            }
+        } catch (EOFException e) {
+            // keep what was read, the file is rewritten with the next change
+            LOGGER.log(Level.FINE, "Dropping the unreadable end of " + file, e);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read " + file, e);
+        }
+    }
+
+    synchronized void save() {
+        try {
+            File dir = file.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Failed to create " + dir);
+            }
+            File tmp = new File(file.getPath() + ".tmp");
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                for (Map.Entry<Key, SVNRepositoryView.NodeEntry> entry : nodes.entrySet()) {
+                    out.writeBoolean(true);
+                    out.writeUTF(entry.getKey().credentials);
+                    out.writeUTF(entry.getKey().path);
+                    out.writeLong(entry.getKey().revision);
+                    writeNode(out, entry.getValue());
+                }
+                out.writeBoolean(false);
+            } finally {
+                out.close();
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save " + file, e);
+        }
+    }
+
+    private static void writeNode(DataOutputStream out, SVNRepositoryView.NodeEntry node) throws IOException {
+        out.writeLong(node.getRevision());
+        out.writeUTF(node.getType().toString());
+        SVNRepositoryView.ChildEntry[] children = node.getChildren();
+        if (children == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(children.length);
+        for (SVNRepositoryView.ChildEntry child : children) {
+            out.writeLong(child.getRevision());
+            out.writeLong(child.getLastModified());
+            out.writeUTF(child.getType().toString());
+            out.writeUTF(child.getName());
+        }
+    }
+
+    private static SVNRepositoryView.NodeEntry readNode(DataInputStream in) throws IOException {
+        long revision = in.readLong();
+        SVNNodeKind type = SVNNodeKind.parseKind(in.readUTF());
+        int count = in.readInt();
+        SVNRepositoryView.ChildEntry[] children = null;
+        if (count >= 0) {
+            List<SVNRepositoryView.ChildEntry> list = new ArrayList<SVNRepositoryView.ChildEntry>(count);
+            for (int i = 0; i < count; i++) {
+                long childRevision = in.readLong();
+                long lastModified = in.readLong();
+                SVNNodeKind childType = SVNNodeKind.parseKind(in.readUTF());
+                list.add(new SVNRepositoryView.ChildEntry(childRevision, lastModified, childType, in.readUTF()));
+            }
+            children = list.toArray(new SVNRepositoryView.ChildEntry[count]);
+        }
+        return new SVNRepositoryView.NodeEntry(revision, type, children);
+    }
+
+    /**
+     * Removes the files of the MapDB cache that earlier versions kept for the repository.
+     */
+    private static void deleteMapDBFiles(File dir, String uuid) {
+        for (String suffix : new String[]{".db", ".db.p", ".db.t"}) {
+            File old = new File(dir, "svn-" + uuid + suffix);
+            if (old.isFile() && !old.delete()) {
+                LOGGER.log(Level.FINE, "Failed to delete {0}", old);
+            }
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(NodeCache.class.getName());
+
+    /**
+     * Maximum number of nodes cached per repository.
+     */
+    static int SIZE = Integer.getInteger(SVNRepositoryView.class.getName() + ".cacheSize", 10000);
+
+    /**
+     * Seconds between a change and the snapshot of the cache to disk, negative to not save the cache.
+     */
+    static int SNAPSHOT_DELAY = Integer.getInteger(SVNRepositoryView.class.getName() + ".snapshotDelay", 60);
+}
@@ -27,9 +27,6 @@ import com.cloudbees.plugins.credentials.common.StandardCredentials;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.scm.*;
-import jenkins.model.Jenkins;
-import org.mapdb.DB;
-import org.mapdb.DBMaker;
 import org.tmatesoft.svn.core.ISVNDirEntryHandler;
 import org.tmatesoft.svn.core.SVNDirEntry;
 import org.tmatesoft.svn.core.SVNException;
@@ -46,10 +43,7 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
  * @author Stephen Connolly
@@ -57,11 +51,14 @@ import java.util.logging.Logger;
 public class SVNRepositoryView {
     public static final int DIRENTS =
             SVNDirEntry.DIRENT_CREATED_REVISION | SVNDirEntry.DIRENT_KIND | SVNDirEntry.DIRENT_TIME;
-    private static final Logger LOGGER = Logger.getLogger(SVNRepositoryView.class.getName());
-    private final DB cache;
     private final SVNRepository repository;
-    private final ConcurrentMap<String, NodeEntry> data;
+    private final NodeCache cache;
+    /**
+     * Partition of the cache for the credentials of this view.
+     */
+    private final String credentialsKey;
     private final String uuid;
+    private volatile boolean closed;
 
     public SVNRepositoryView(SVNURL repoURL, StandardCredentials credentials) throws SVNException, IOException {
         repository = SVNRepositoryFactory.create(repoURL);
@@ -93,27 +90,8 @@ public class SVNRepositoryView {
             if (uuid == null) { // TODO is this even possible? Javadoc is unclear.
                 throw new IOException("Could not find UUID for " + repoURL);
             }
-            File cacheFile = new File(new File(Jenkins.getInstance().getRootDir(), "caches"), "svn-" + uuid + ".db");
-
-            cacheFile.getParentFile().mkdirs();
-            DB cache = null;
-            int count = 0;
-            while (cache == null) {
-                try {
-                    cache = DBMaker.newFileDB(cacheFile)
-                            .cacheWeakRefEnable()
-                            .make();
-                } catch (Throwable t) { // this library seems to have nonstandard exception handling
-                    cacheFile.delete();
-                    LOGGER.log(Level.WARNING, "failing to make/load " + cacheFile, t);
-                    if (++count >= 10) {
-                        throw new IOException("failed to make/load " + cacheFile + ": " + t, t);
-                    }
-                }
-            }
-            this.cache = cache;
-            this.data = this.cache.getHashMap(credentials == null ? "data" : "data-" + credentials.getId());
-            cache.commit();
+            this.cache = NodeCache.of(uuid);
+            this.credentialsKey = credentials == null ? "" : credentials.getId();
             success = true;
         } finally {
             if (!success) {
@@ -132,100 +110,120 @@ public class SVNRepositoryView {
     }
 
     public boolean isClosed() {
-        return cache.isClosed();
+        return closed;
     }
 
     public void close() {
         if (isClosed()) {
             return;
         }
+        closed = true;
         repository.closeSession();
-        cache.close();
     }
 
     public SVNNodeKind checkPath(String path, long revision) throws SVNException {
         path = SVNPathUtil.getAbsolutePath(path);
-        NodeEntry nodeEntry = getNodeEntry(path);
-        if (nodeEntry == null || nodeEntry.getRevision() != revision) {
+        NodeEntry nodeEntry = getNodeEntry(path, revision);
+        if (revision == -1) {
             try {
-                SVNNodeKind svnNodeKind = repository.checkPath(path, revision);
-                if (SVNNodeKind.DIR.equals(svnNodeKind)) {
-                    ChildEntryCollector collector = new ChildEntryCollector();
-                    long dirRev = repository.getDir(path, revision, null, DIRENTS, collector);
-                    nodeEntry = new NodeEntry(dirRev, svnNodeKind, collector.getResult());
-                } else {
-                    nodeEntry = new NodeEntry(revision, svnNodeKind, null);
-                }
-                setNodeEntry(path, nodeEntry);
+                // only the kind is needed, so don't list the directory
+                return repository.checkPath(path, revision);
             } catch (SVNException e) {
                 // if we have a cached result and the server is off-line, use the cache
                 if (nodeEntry == null) {
                     throw e;
                 }
+                return nodeEntry.getType();
             }
         }
+        if (nodeEntry == null) {
+            // only the kind is needed, getNode lists the directory if its children are asked for
+            nodeEntry = new NodeEntry(revision, repository.checkPath(path, revision), null);
+            setNodeEntry(path, revision, nodeEntry);
+        }
         return nodeEntry.getType();
     }
 
+    /**
+     * Gets the cached node of the path at the revision, or the last one seen at HEAD for revision {@code -1}.
+     */
     @CheckForNull
-    private NodeEntry getNodeEntry(String path) {
-        try {
-            return data.get(path);
-        } catch (Throwable t) {
-            // ignore, it's only a cache
-            return null;
-        }
+    private NodeEntry getNodeEntry(String path, long revision) {
+        return cache.get(credentialsKey, path, revision);
     }
 
-    private void setNodeEntry(String path, NodeEntry nodeEntry) {
-        try {
-            data.put(path, nodeEntry);
-            cache.commit();
-        } catch (Throwable t) {
-            // ignore, it's only a cache
-        }
+    private void setNodeEntry(String path, long revision, NodeEntry nodeEntry) {
+        cache.put(credentialsKey, path, revision, nodeEntry);
     }
 
     public long getLatestRevision() throws SVNException {
         return repository.getLatestRevision();
     }
 
+    /**
+     * Gets the node of the path at the revision.
+     * <p>
+     * At HEAD, a directory is listed at most once per change: a commit below a directory changes the revision it was
+     * last changed in, so a single stat of that revision tells whether the cached children are still current.
+     * That revision doesn't identify the directory when an ancestor was replaced by a copy whose directory was last
+     * changed in the same revision as the one it replaced, i.e. both were changed by a single commit. The cached
+     * children of the replaced directory are then used until the directory changes again.
+     * The revision of a directory at HEAD is the one its listing was read at.
+     */
     public NodeEntry getNode(String path, long revision) throws SVNException {
         path = SVNPathUtil.getAbsolutePath(path);
-        NodeEntry nodeEntry = getNodeEntry(path);
-        if (nodeEntry == null || nodeEntry.getRevision() != revision) {
+        NodeEntry nodeEntry = getNodeEntry(path, revision);
+        if (revision == -1) {
             try {
-                SVNNodeKind svnNodeKind = repository.checkPath(path, revision);
-                if (revision == -1) {
-                    if (SVNNodeKind.DIR.equals(svnNodeKind)) {
-                        ChildEntryCollector collector = new ChildEntryCollector();
-                        long dirRev = repository.getDir(path, revision, null, DIRENTS, collector);
-                        nodeEntry = new NodeEntry(dirRev, svnNodeKind, collector.getResult());
-                    } else if (SVNNodeKind.FILE.equals(svnNodeKind)) {
-                        long fileRev = repository.getFile(path, revision, null, null);
-                        nodeEntry = new NodeEntry(fileRev, svnNodeKind, null);
-                    } else {
-                        nodeEntry = new NodeEntry(revision, svnNodeKind, null);
-                    }
-                } else {
-                    nodeEntry = new NodeEntry(revision, svnNodeKind, null);
-                }
-                if (!nodeEntry.getType().equals(SVNNodeKind.DIR)) {
-                    setNodeEntry(path, nodeEntry);
-                }
+                return getHeadNode(path);
             } catch (SVNException e) {
                 // if we have a cached result and the server is off-line, use the cache
                 if (nodeEntry == null) {
                     throw e;
                 }
+                return nodeEntry;
+            }
+        }
+        if (nodeEntry == null) {
+            nodeEntry = new NodeEntry(revision, repository.checkPath(path, revision), null);
+            if (!nodeEntry.getType().equals(SVNNodeKind.DIR)) {
+                setNodeEntry(path, revision, nodeEntry);
             }
         }
         if (nodeEntry.getType().equals(SVNNodeKind.DIR) && nodeEntry.getChildren() == null) {
-            // if the cached result does not have a list of children and the server is off-line, bomb out
             ChildEntryCollector collector = new ChildEntryCollector();
             long dirRev = repository.getDir(path, revision, null, DIRENTS, collector);
             nodeEntry = new NodeEntry(dirRev, nodeEntry.getType(), collector.getResult());
-            setNodeEntry(path, nodeEntry);
+            setNodeEntry(path, revision, nodeEntry);
+        }
+        return nodeEntry;
+    }
+
+    private NodeEntry getHeadNode(String path) throws SVNException {
+        SVNDirEntry stat = repository.info(path, -1);
+        NodeEntry nodeEntry;
+        if (stat == null) {
+            nodeEntry = new NodeEntry(-1, SVNNodeKind.NONE, null);
+        } else if (SVNNodeKind.DIR.equals(stat.getKind())) {
+            nodeEntry = cache.getListing(credentialsKey, path, stat.getRevision());
+            if (nodeEntry == null || !SVNNodeKind.DIR.equals(nodeEntry.getType()) || nodeEntry.getChildren() == null) {
+                // the path may not exist yet at the revision it was last changed in, so list HEAD
+                ChildEntryCollector collector = new ChildEntryCollector();
+                long dirRev = repository.getDir(path, -1, null, DIRENTS, collector);
+                nodeEntry = new NodeEntry(dirRev, SVNNodeKind.DIR, collector.getResult());
+                // a commit since the stat makes the listing newer than the stat, but then the directory has a
+                // newer revision too, and later stats don't find this listing anymore
+                cache.putListing(credentialsKey, path, stat.getRevision(), nodeEntry);
+            }
+        } else if (SVNNodeKind.FILE.equals(stat.getKind())) {
+            long fileRev = repository.getFile(path, -1, null, null);
+            nodeEntry = new NodeEntry(fileRev, SVNNodeKind.FILE, null);
+        } else {
+            nodeEntry = new NodeEntry(-1, stat.getKind(), null);
+        }
+        if (getNodeEntry(path, -1) != nodeEntry) {
+            // remembered in case the server can't be reached
+            setNodeEntry(path, -1, nodeEntry);
         }
         return nodeEntry;
     }
@@ -47,9 +47,11 @@ import hudson.scm.SubversionRepositoryStatus;
 import hudson.scm.SubversionSCM;
 import hudson.scm.subversion.SvnHelper;
 import hudson.security.ACL;
+import hudson.util.DaemonThreadFactory;
 import hudson.util.EditDistance;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
+import hudson.util.NamingThreadFactory;
 import jenkins.scm.api.SCMHead;
 import jenkins.scm.api.SCMHeadObserver;
 import jenkins.scm.api.SCMRevision;
@@ -68,8 +70,11 @@ import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
+import org.tmatesoft.svn.core.ISVNLogEntryHandler;
 import org.tmatesoft.svn.core.SVNDirEntry;
 import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
 import org.tmatesoft.svn.core.SVNNodeKind;
 import org.tmatesoft.svn.core.SVNURL;
 import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
@@ -98,6 +103,16 @@ import java.util.StringTokenizer;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
@@ -131,6 +146,12 @@ public class SubversionSCMSource extends SCMSource {
     @GuardedBy("this")
     private transient String uuid;
 
+    /**
+     * Branches found by the last complete scan, see {@link #INCREMENTAL_INDEXING}.
+     */
+    @GuardedBy("this")
+    private transient IndexState index;
+
     @Deprecated
     public SubversionSCMSource(String id, String remoteBase, String credentialsId, String includes, String excludes) {
         super(id);
@@ -241,17 +262,55 @@ public class SubversionSCMSource extends SCMSource {
             repository = openSession(repoURL, getOwner());
 
             String repoPath = SubversionSCM.DescriptorImpl.getRelativePath(repoURL, repository.getRepository());
+            SortedSet<List<String>> includePaths = toPaths(splitCludes(includes));
+            SortedSet<List<String>> excludePaths = toPaths(splitCludes(excludes));
+            Map<String, long[]> candidates = null;
+            String indexKey = null;
+            long headRevision = -1;
+            if (INCREMENTAL_INDEXING) {
+                indexKey = repository.getUuid() + ' ' + repoPath + ' ' + credentialsId + ' ' + includes + ' ' + excludes;
+                headRevision = repository.getLatestRevision();
+                candidates = getIndexedBranches(listener, repository, indexKey, repoPath, includePaths, excludePaths,
+                        headRevision);
+                if (candidates != null) {
+                    observeAll(listener, repository, repoPath, candidates, criteria, observer);
+                    return;
+                }
+                candidates = new TreeMap<String, long[]>();
+            }
             List<String> prefix = Collections.emptyList();
-            fetch(listener,
-                    repository,
-                    repoPath,
-                    toPaths(splitCludes(includes)),
-                    prefix,
-                    prefix,
-                    toPaths(splitCludes(excludes)),
-                    criteria,
-                    observer
-            );
+            DirectoryLister lister = PARALLELISM > 1
+                    ? new DirectoryLister(repoPath, includePaths, excludePaths)
+                    : null;
+            try {
+                if (lister != null) {
+                    for (int i = 0; i < PARALLELISM; i++) {
+                        lister.addSession(openSession(repoURL, getOwner()));
+                    }
+                }
+                fetch(listener,
+                        repository,
+                        repoPath,
+                        includePaths,
+                        prefix,
+                        prefix,
+                        excludePaths,
+                        criteria,
+                        observer,
+                        candidates,
+                        lister
+                );
+            } finally {
+                if (lister != null) {
+                    lister.close();
+                }
+            }
+            if (candidates != null && observer.isObserving()) {
+                // only a walk that wasn't stopped early has seen all branches
+                synchronized (this) {
+                    index = new IndexState(indexKey, headRevision, candidates);
+                }
+            }
         } catch (SVNException e) {
             e.printStackTrace(listener.error("Could not communicate with Subversion server"));
             throw new IOException(e);
@@ -350,26 +409,30 @@ public class SubversionSCMSource extends SCMSource {
                @NonNull List<String> realPath,
                @NonNull SortedSet<List<String>> excludedPaths,
                @CheckForNull SCMSourceCriteria branchCriteria,
-               @NonNull SCMHeadObserver observer) throws IOException, SVNException, InterruptedException {
+               @NonNull SCMHeadObserver observer,
+               @CheckForNull Map<String, long[]> candidates,
+               @CheckForNull DirectoryLister lister) throws IOException, SVNException, InterruptedException {
         String svnPath = SVNPathUtil.append(repoPath, StringUtils.join(realPath, '/'));
         assert prefix.size() == realPath.size();
         assert wildcardStartsWith(realPath, prefix);
         SortedMap<List<String>, SortedSet<List<String>>> includePaths = groupPaths(paths, prefix);
         listener.getLogger().println("Checking directory " + svnPath + "@HEAD");
-        SVNRepositoryView.NodeEntry node = repository.getNode(svnPath, -1);
+        SVNRepositoryView.NodeEntry node = lister == null
+                ? repository.getNode(svnPath, -1)
+                : lister.getNode(prefix, realPath);
         if (!SVNNodeKind.DIR.equals(node.getType()) || node.getChildren() == null) {
             return;
         }
+        SVNRepositoryView.ChildEntry[] children = node.getChildren().clone();
+        Arrays.sort(children, new Comparator<SVNRepositoryView.ChildEntry>() {
+            public int compare(SVNRepositoryView.ChildEntry o1, SVNRepositoryView.ChildEntry o2) {
+                long diff = o2.getRevision() - o1.getRevision();
+                return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+            }
+        });
         for (Map.Entry<List<String>, SortedSet<List<String>>> entry : includePaths.entrySet()) {
             for (List<String> path : entry.getValue()) {
                 String name = path.get(prefix.size());
-                SVNRepositoryView.ChildEntry[] children = node.getChildren().clone();
-                Arrays.sort(children, new Comparator<SVNRepositoryView.ChildEntry>() {
-                    public int compare(SVNRepositoryView.ChildEntry o1, SVNRepositoryView.ChildEntry o2) {
-                        long diff = o2.getRevision() - o1.getRevision();
-                        return diff < 0 ? -1 : diff > 0 ? 1 : 0;
-                    }
-                });
                 for (final SVNRepositoryView.ChildEntry svnEntry : children) {
                     if (svnEntry.getType() == SVNNodeKind.DIR && isMatch(svnEntry.getName(), name)) {
                         List<String> childPrefix = copyAndAppend(prefix, name);
@@ -378,58 +441,246 @@ public class SubversionSCMSource extends SCMSource {
                             continue;
                         }
                         if (path.equals(childPrefix)) {
-                            final String childPath = StringUtils.join(childRealPath, '/');
-                            final String candidateRootPath = SVNPathUtil.append(repoPath, childPath);
-                            final long candidateRevision = svnEntry.getRevision();
-                            final long lastModified = svnEntry.getLastModified();
-                            listener.getLogger().println(
-                                    "Checking candidate branch " + candidateRootPath + "@HEAD");
-                            if (branchCriteria == null || branchCriteria.isHead(
-                                    new SCMSourceCriteria.Probe() {
-                                        @Override
-                                        public String name() {
-                                            return childPath;
-                                        }
-
-                                        @Override
-                                        public long lastModified() {
-                                            return lastModified;
-                                        }
-
-                                        @Override
-                                        public boolean exists(@NonNull String path) throws IOException {
-                                            try {
-                                                return repository.checkPath(
-                                                        SVNPathUtil.append(candidateRootPath, path),
-                                                        -1) != SVNNodeKind.NONE;
-                                            } catch (SVNException e) {
-                                                throw new IOException(e);
-                                            }
-                                        }
-                                    }, listener)) {
-                                listener.getLogger().println("Met criteria");
-                                long branchRevision = candidateRevision;
-                                if (repository.checkPath(candidateRootPath, branchRevision) == SVNNodeKind.NONE)
-                                {
-                                    listener.getLogger().println("Branch older than root folder, using HEAD");
-                                    branchRevision = -1;
-                                }
-                                SCMHead head = new SCMHead(childPath);
-                                observer.observe(head, new SCMRevisionImpl(head, branchRevision));
-                                if (!observer.isObserving()) {
-                                    return;
-                                }
-                            } else {
-                                listener.getLogger().println("Does not meet criteria");
+                            String childPath = StringUtils.join(childRealPath, '/');
+                            if (candidates != null) {
+                                candidates.put(childPath,
+                                        new long[]{svnEntry.getRevision(), svnEntry.getLastModified()});
+                            }
+                            if (!observe(listener, repository, repoPath, childPath, svnEntry.getRevision(),
+                                    svnEntry.getLastModified(), branchCriteria, observer)) {
+                                return;
                             }
                         } else {
                             fetch(listener, repository, repoPath, paths, childPrefix,
-                                    childRealPath, excludedPaths, branchCriteria, observer);
+                                    childRealPath, excludedPaths, branchCriteria, observer, candidates, lister);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks a candidate branch against the criteria and reports it to the observer if it meets them.
+     *
+     * @return {@code false} if the observer doesn't want to see more branches.
+     */
+    private boolean observe(@NonNull TaskListener listener,
+                            @NonNull SVNRepositoryView repository,
+                            @NonNull String repoPath,
+                            @NonNull String childPath,
+                            long candidateRevision,
+                            long lastModified,
+                            @CheckForNull SCMSourceCriteria branchCriteria,
+                            @NonNull SCMHeadObserver observer) throws IOException, SVNException, InterruptedException {
+        String candidateRootPath = SVNPathUtil.append(repoPath, childPath);
+        listener.getLogger().println(
+                "Checking candidate branch " + candidateRootPath + "@HEAD");
+        CandidateProbe probe = new CandidateProbe(repository, candidateRootPath, childPath, lastModified);
+        if (branchCriteria == null || branchCriteria.isHead(probe, listener)) {
+            listener.getLogger().println("Met criteria");
+            long branchRevision = candidateRevision;
+            if (!probe.existsAt(branchRevision))
+            {
+                listener.getLogger().println("Branch older than root folder, using HEAD");
+                branchRevision = -1;
+            }
+            SCMHead head = new SCMHead(childPath);
+            observer.observe(head, new SCMRevisionImpl(head, branchRevision));
+            return observer.isObserving();
+        } else {
+            listener.getLogger().println("Does not meet criteria");
+            return true;
+        }
+    }
+
+    /**
+     * Reports the known branches, most recently changed first, like the walk of {@link #fetch} would.
+     */
+    private void observeAll(@NonNull TaskListener listener,
+                            @NonNull SVNRepositoryView repository,
+                            @NonNull String repoPath,
+                            @NonNull Map<String, long[]> branches,
+                            @CheckForNull SCMSourceCriteria branchCriteria,
+                            @NonNull SCMHeadObserver observer) throws IOException, SVNException, InterruptedException {
+        List<Map.Entry<String, long[]>> sorted = new ArrayList<Map.Entry<String, long[]>>(branches.entrySet());
+        Collections.sort(sorted, new Comparator<Map.Entry<String, long[]>>() {
+            public int compare(Map.Entry<String, long[]> o1, Map.Entry<String, long[]> o2) {
+                long diff = o2.getValue()[0] - o1.getValue()[0];
+                return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+            }
+        });
+        for (Map.Entry<String, long[]> branch : sorted) {
+            if (!observe(listener, repository, repoPath, branch.getKey(), branch.getValue()[0], branch.getValue()[1],
+                    branchCriteria, observer)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Brings the branches found by the last scan up to date with the log of the revisions committed since.
+     *
+     * @return the branches by path relative to the remote base, with their last changed revision and time, or
+     *         {@code null} if the directories have to be walked.
+     */
+    @CheckForNull
+    private Map<String, long[]> getIndexedBranches(@NonNull TaskListener listener,
+                                                   @NonNull SVNRepositoryView repository,
+                                                   @NonNull String indexKey,
+                                                   @NonNull String repoPath,
+                                                   @NonNull final SortedSet<List<String>> includePaths,
+                                                   @NonNull final SortedSet<List<String>> excludePaths,
+                                                   long headRevision) throws SVNException {
+        IndexState state;
+        synchronized (this) {
+            state = index;
+        }
+        if (state == null || !state.key.equals(indexKey) || state.revision > headRevision) {
+            return null;
+        }
+        final TreeMap<String, long[]> branches = new TreeMap<String, long[]>();
+        for (Map.Entry<String, long[]> branch : state.branches.entrySet()) {
+            branches.put(branch.getKey(), branch.getValue().clone());
+        }
+        if (state.revision == headRevision) {
+            return branches;
+        }
+
+        listener.getLogger().println("Checking changes to " + repoPath + " since r" + state.revision);
+        final String base = StringUtils.removeEnd(repoPath, "/");
+        final Set<String> unverified = new HashSet<String>();
+        final boolean[] walk = new boolean[1];
+        // the paths of the session are relative to the remote base
+        repository.getRepository().log(new String[]{""}, state.revision + 1, headRevision, true, false,
+                new ISVNLogEntryHandler() {
+                    public void handleLogEntry(SVNLogEntry logEntry) {
+                        if (walk[0] || logEntry.getChangedPaths() == null) {
+                            return;
+                        }
+                        long time = logEntry.getDate() == null ? 0 : logEntry.getDate().getTime();
+                        // parents before children
+                        Map<String, SVNLogEntryPath> changedPaths =
+                                new TreeMap<String, SVNLogEntryPath>(logEntry.getChangedPaths());
+                        for (SVNLogEntryPath changed : changedPaths.values()) {
+                            if (!applyChange(branches, unverified, base, includePaths, excludePaths, changed,
+                                    logEntry.getRevision(), time)) {
+                                walk[0] = true;
+                                return;
+                            }
                         }
                     }
+                });
+        if (walk[0]) {
+            listener.getLogger().println("Directories were copied above the branches, checking all directories");
+            return null;
+        }
+        for (String path : unverified) {
+            if (branches.containsKey(path)
+                    && repository.getRepository().checkPath(path, headRevision) != SVNNodeKind.DIR) {
+                branches.remove(path);
+            }
+        }
+        synchronized (this) {
+            index = new IndexState(indexKey, headRevision, branches);
+        }
+        return branches;
+    }
+
+    /**
+     * Updates the known branches with a path changed in a revision.
+     *
+     * @param branches     the branches by path relative to the remote base, with their last changed revision and time.
+     * @param unverified   receives the branches that were added but might be files.
+     * @param base         the path of the remote base in the repository, without trailing slash.
+     * @param includePaths the includes.
+     * @param excludePaths the excludes.
+     * @param changed      the changed path.
+     * @param revision     the revision.
+     * @param time         the time of the revision.
+     * @return {@code false} if the change can't be tracked, because a tree that may contain branches was copied.
+     */
+    static boolean applyChange(@NonNull TreeMap<String, long[]> branches,
+                               @NonNull Set<String> unverified,
+                               @NonNull String base,
+                               @NonNull SortedSet<List<String>> includePaths,
+                               @NonNull SortedSet<List<String>> excludePaths,
+                               @NonNull SVNLogEntryPath changed,
+                               long revision,
+                               long time) {
+        String path = changed.getPath();
+        char type = changed.getType();
+        if (!path.startsWith(base + "/")) {
+            // the remote base itself or one of its parents was replaced, or something outside of it changed
+            return type == SVNLogEntryPath.TYPE_MODIFIED || !(base + "/").startsWith(path + "/");
+        }
+        String relative = path.substring(base.length() + 1);
+        List<String> segments = Arrays.asList(relative.split("/"));
+        if (type == SVNLogEntryPath.TYPE_DELETED || type == SVNLogEntryPath.TYPE_REPLACED) {
+            branches.remove(relative);
+            // '0' follows '/'
+            branches.subMap(relative + '/', relative + '0').clear();
+        }
+        if (type == SVNLogEntryPath.TYPE_ADDED || type == SVNLogEntryPath.TYPE_REPLACED) {
+            if (changed.getCopyPath() != null && isParentOfCandidates(segments, includePaths, excludePaths)) {
+                return false;
+            }
+            if (changed.getKind() != SVNNodeKind.FILE && isCandidate(segments, includePaths, excludePaths)) {
+                branches.put(relative, new long[]{revision, time});
+                if (changed.getKind() != SVNNodeKind.DIR) {
+                    unverified.add(relative);
                 }
             }
         }
+        // the branches containing the path were changed in this revision
+        StringBuilder prefix = new StringBuilder(relative.length());
+        for (String segment : segments) {
+            if (prefix.length() > 0) {
+                prefix.append('/');
+            }
+            prefix.append(segment);
+            long[] branch = branches.get(prefix.toString());
+            if (branch != null && branch[0] < revision) {
+                branch[0] = revision;
+                branch[1] = time;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the walk of {@link #fetch} would report a directory with this path as a candidate branch.
+     */
+    static boolean isCandidate(@NonNull List<String> segments,
+                               @NonNull SortedSet<List<String>> includePaths,
+                               @NonNull SortedSet<List<String>> excludePaths) {
+        if (wildcardStartsWith(segments, excludePaths)) {
+            return false;
+        }
+        for (List<String> include : includePaths) {
+            if (include.size() == segments.size() && wildcardStartsWith(segments, include)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the walk of {@link #fetch} would look for candidate branches below a directory with this path.
+     */
+    static boolean isParentOfCandidates(@NonNull List<String> segments,
+                                        @NonNull SortedSet<List<String>> includePaths,
+                                        @NonNull SortedSet<List<String>> excludePaths) {
+        if (wildcardStartsWith(segments, excludePaths)) {
+            return false;
+        }
+        for (List<String> include : includePaths) {
+            if (include.size() > segments.size()
+                    && wildcardStartsWith(segments, include.subList(0, segments.size()))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -697,6 +948,243 @@ public class SubversionSCMSource extends SCMSource {
         return new SubversionSCM(remote.toString(), credentialsId, ".");
     }
 
+    /**
+     * The probe of a candidate branch.
+     * <p>
+     * A single direct child, such as <tt>Jenkinsfile</tt>, is checked on its own, as that is one request while a
+     * listing takes two when it is not cached. Once the criteria ask about a second direct child, the root directory
+     * of the branch is listed, and the questions about its direct children are answered from that listing instead of
+     * one request each. Deeper paths are still checked one by one.
+     */
+    static final class CandidateProbe extends SCMSourceCriteria.Probe {
+        private final transient SVNRepositoryView repository;
+        private final String candidateRootPath;
+        private final String name;
+        private final long lastModified;
+        /**
+         * The listing of the root directory, {@code null} until a second direct child is asked for.
+         */
+        private transient SVNRepositoryView.NodeEntry root;
+        /**
+         * The first direct child asked for, and whether it exists.
+         */
+        private transient String firstChild;
+        private transient boolean firstChildExists;
+
+        CandidateProbe(SVNRepositoryView repository, String candidateRootPath, String name, long lastModified) {
+            this.repository = repository;
+            this.candidateRootPath = candidateRootPath;
+            this.name = name;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public long lastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public boolean exists(@NonNull String path) throws IOException {
+            try {
+                String child = StringUtils.strip(path, "/");
+                if (child.length() > 0 && child.indexOf('/') == -1 && !".".equals(child) && !"..".equals(child)) {
+                    if (root == null) {
+                        if (firstChild == null) {
+                            firstChildExists = repository.checkPath(
+                                    SVNPathUtil.append(candidateRootPath, child),
+                                    -1) != SVNNodeKind.NONE;
+                            firstChild = child;
+                            return firstChildExists;
+                        }
+                        if (firstChild.equals(child)) {
+                            return firstChildExists;
+                        }
+                        root = repository.getNode(candidateRootPath, -1);
+                    }
+                    if (root.getChildren() != null) {
+                        for (SVNRepositoryView.ChildEntry entry : root.getChildren()) {
+                            if (entry.getName().equals(child)) {
+                                return true;
+                            }
+                        }
+                        return false;
+                    }
+                }
+                return repository.checkPath(
+                        SVNPathUtil.append(candidateRootPath, path),
+                        -1) != SVNNodeKind.NONE;
+            } catch (SVNException e) {
+                throw new IOException(e);
+            }
+        }
+
+        /**
+         * Whether the root directory of the branch exists at the revision.
+         * <p>
+         * A branch may not exist yet at the revision it was last changed in, e.g. below a copied directory, so only
+         * the revision the listing was read at is answered without asking the server. Otherwise the answer takes one
+         * request, which the {@link SVNRepositoryView} remembers for the next scans.
+         */
+        boolean existsAt(long revision) throws SVNException {
+            if (root != null && SVNNodeKind.DIR.equals(root.getType()) && root.getRevision() == revision) {
+                // the listing at HEAD was read at that revision
+                return true;
+            }
+            return repository.checkPath(candidateRootPath, revision) != SVNNodeKind.NONE;
+        }
+    }
+
+    /**
+     * Lists the directories the walk of {@link #fetch} will visit ahead of it, over a pool of sessions.
+     * <p>
+     * As soon as a directory is listed, the listing of its subdirectories that match the includes is started, so
+     * sibling subtrees are explored at the same time. The walk itself stays sequential and only waits for the
+     * listings it needs, so the branches are observed in the same order as without the lister. Closing the lister
+     * abandons the listings that are still pending, e.g. when the observer stopped observing.
+     */
+    static final class DirectoryLister {
+        private final String repoPath;
+        private final SortedSet<List<String>> paths;
+        private final SortedSet<List<String>> excludedPaths;
+        private final List<SVNRepositoryView> sessions = new ArrayList<SVNRepositoryView>();
+        private final BlockingQueue<SVNRepositoryView> idle = new LinkedBlockingQueue<SVNRepositoryView>();
+        private final ConcurrentMap<String, Future<SVNRepositoryView.NodeEntry>> listings =
+                new ConcurrentHashMap<String, Future<SVNRepositoryView.NodeEntry>>();
+        private ExecutorService executor;
+        private volatile boolean closed;
+
+        DirectoryLister(String repoPath, SortedSet<List<String>> paths, SortedSet<List<String>> excludedPaths) {
+            this.repoPath = repoPath;
+            this.paths = paths;
+            this.excludedPaths = excludedPaths;
+        }
+
+        synchronized void addSession(SVNRepositoryView session) {
+            sessions.add(session);
+            idle.add(session);
+        }
+
+        /**
+         * Gets the listing of a directory, waiting for it if it is in progress.
+         */
+        SVNRepositoryView.NodeEntry getNode(List<String> prefix, List<String> realPath)
+                throws SVNException, InterruptedException {
+            try {
+                return schedule(prefix, realPath).get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SVNException) {
+                    throw (SVNException) cause;
+                }
+                if (cause instanceof InterruptedException) {
+                    throw (InterruptedException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new Error(cause);
+            }
+        }
+
+        private Future<SVNRepositoryView.NodeEntry> schedule(final List<String> prefix, final List<String> realPath) {
+            final String svnPath = SVNPathUtil.append(repoPath, StringUtils.join(realPath, '/'));
+            String key = StringUtils.join(prefix, '/') + '\n' + svnPath;
+            Future<SVNRepositoryView.NodeEntry> listing = listings.get(key);
+            if (listing != null) {
+                return listing;
+            }
+            FutureTask<SVNRepositoryView.NodeEntry> task = new FutureTask<SVNRepositoryView.NodeEntry>(
+                    new Callable<SVNRepositoryView.NodeEntry>() {
+                        public SVNRepositoryView.NodeEntry call() throws Exception {
+                            SVNRepositoryView session = idle.take();
+                            SVNRepositoryView.NodeEntry node;
+                            try {
+                                node = session.getNode(svnPath, -1);
+                            } finally {
+                                idle.add(session);
+                            }
+                            if (SVNNodeKind.DIR.equals(node.getType()) && node.getChildren() != null) {
+                                scheduleSubdirectories(prefix, realPath, node);
+                            }
+                            return node;
+                        }
+                    });
+            listing = listings.putIfAbsent(key, task);
+            if (listing != null) {
+                return listing;
+            }
+            synchronized (this) {
+                if (closed) {
+                    task.cancel(false);
+                    return task;
+                }
+                if (executor == null) {
+                    executor = Executors.newFixedThreadPool(sessions.size(),
+                            new NamingThreadFactory(new DaemonThreadFactory(), "Subversion branch scan of " + repoPath));
+                }
+                executor.execute(task);
+            }
+            return task;
+        }
+
+        /**
+         * Starts listing the subdirectories the walk will descend into, see {@link #fetch}.
+         */
+        private void scheduleSubdirectories(List<String> prefix, List<String> realPath,
+                                            SVNRepositoryView.NodeEntry node) {
+            for (Map.Entry<List<String>, SortedSet<List<String>>> entry : groupPaths(paths, prefix).entrySet()) {
+                for (List<String> path : entry.getValue()) {
+                    String name = path.get(prefix.size());
+                    for (SVNRepositoryView.ChildEntry svnEntry : node.getChildren()) {
+                        if (closed) {
+                            return;
+                        }
+                        if (svnEntry.getType() == SVNNodeKind.DIR && isMatch(svnEntry.getName(), name)) {
+                            List<String> childPrefix = copyAndAppend(prefix, name);
+                            List<String> childRealPath = copyAndAppend(realPath, svnEntry.getName());
+                            if (!wildcardStartsWith(childRealPath, excludedPaths) && !path.equals(childPrefix)) {
+                                schedule(childPrefix, childRealPath);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            for (Future<SVNRepositoryView.NodeEntry> listing : listings.values()) {
+                listing.cancel(true);
+            }
+            for (SVNRepositoryView session : sessions) {
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * The branches found at a revision, with the settings they were found with.
+     */
+    private static final class IndexState {
+        private final String key;
+        private final long revision;
+        private final Map<String, long[]> branches;
+
+        IndexState(String key, long revision, Map<String, long[]> branches) {
+            this.key = key;
+            this.revision = revision;
+            this.branches = branches;
+        }
+    }
+
     /**
      * Our implementation.
      */
@@ -1060,4 +1548,17 @@ public class SubversionSCMSource extends SCMSource {
         }
     }
 
+    /**
+     * Whether a scan only reads the log of the revisions committed since the previous scan to update the branches
+     * it found, instead of listing all directories again. Directories are still listed when a tree that may contain
+     * branches is copied, when the settings change, and on the first scan after a restart.
+     */
+    static boolean INCREMENTAL_INDEXING = Boolean.getBoolean(SubversionSCMSource.class.getName() + ".incrementalIndexing");
+
+    /**
+     * Number of sessions that list directories at the same time during a branch scan, 1 to list them one after
+     * another on the session of the scan.
+     */
+    static int PARALLELISM = Integer.getInteger(SubversionSCMSource.class.getName() + ".parallelism", 1);
+
 }
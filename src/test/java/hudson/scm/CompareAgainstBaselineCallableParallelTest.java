@@ -0,0 +1,81 @@
+package hudson.scm;
+
+import static java.util.regex.Pattern.compile;
+import hudson.scm.SubversionSCM.SVNLogHandler;
+import hudson.util.StreamTaskListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import jenkins.scm.impl.subversion.SubversionSampleRepoRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompareAgainstBaselineCallableParallelTest {
+
+    @Rule
+    public JenkinsRule r = new JenkinsRule();
+    @Rule
+    public SubversionSampleRepoRule sampleRepo = new SubversionSampleRepoRule();
+
+    @Test
+    public void pollsSeveralLocationsInParallel() throws Exception {
+        sampleRepo.init();
+        sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/dev");
+        sampleRepo.svnkit("mkdir", "--message=module", sampleRepo.prjUrl() + "/module");
+        sampleRepo.write("file", "trunk");
+        sampleRepo.svnkit("commit", "--message=trunk", sampleRepo.wc());
+        Map<String, Long> revisions = new LinkedHashMap<String, Long>();
+        revisions.put(sampleRepo.trunkUrl(), 2L);
+        revisions.put(sampleRepo.branchesUrl() + "/dev", 3L);
+        revisions.put(sampleRepo.prjUrl() + "/module", 4L);
+        revisions.put(sampleRepo.tagsUrl(), 1L);
+        SVNRevisionState baseline = new SVNRevisionState(revisions);
+
+        // each location gets its own copy of the filter, which must still exclude the change to trunk
+        ByteArrayOutputStream sequentialLog = new ByteArrayOutputStream();
+        PollingResult sequential = poll(baseline, compile("/prj/trunk/.*"), 1, sequentialLog);
+        ByteArrayOutputStream parallelLog = new ByteArrayOutputStream();
+        PollingResult parallel = poll(baseline, compile("/prj/trunk/.*"), 2, parallelLog);
+        assertEquals(PollingResult.Change.INSIGNIFICANT, sequential.change);
+        assertEquals(PollingResult.Change.INSIGNIFICANT, parallel.change);
+        assertEquals(((SVNRevisionState) sequential.remote).revisions, ((SVNRevisionState) parallel.remote).revisions);
+        assertEquals(5L, ((SVNRevisionState) parallel.remote).getRevision(sampleRepo.trunkUrl()));
+        assertEquals(1L, ((SVNRevisionState) parallel.remote).getRevision(sampleRepo.tagsUrl()));
+        // the log reads the same, in baseline order, apart from its first line with the time of the poll
+        assertEquals(withoutFirstLine(sequentialLog), withoutFirstLine(parallelLog));
+        String log = parallelLog.toString();
+        assertTrue(log.indexOf(sampleRepo.trunkUrl()) < log.indexOf(sampleRepo.branchesUrl() + "/dev"));
+        assertTrue(log.indexOf(sampleRepo.prjUrl() + "/module") < log.indexOf(sampleRepo.tagsUrl()));
+
+        assertEquals(PollingResult.Change.SIGNIFICANT,
+                poll(baseline, compile("/prj/tags/.*"), 2, new ByteArrayOutputStream()).change);
+    }
+
+    private static PollingResult poll(SVNRevisionState baseline, Pattern excluded, int concurrencyPerHost,
+                                      ByteArrayOutputStream log) throws IOException {
+        StreamTaskListener listener = new StreamTaskListener(log);
+        SVNLogFilter filter = new DefaultSVNLogFilter(new Pattern[] {excluded}, new Pattern[0],
+                Collections.<String>emptySet(), "", new Pattern[0], false);
+        PollingResult result = new CompareAgainstBaselineCallable(baseline, new SVNLogHandler(filter, listener),
+                "projectName", listener, new CredentialsSVNAuthenticationProviderImpl(null),
+                Collections.<String,ISVNAuthenticationProvider>emptyMap(), "nodeName", concurrencyPerHost).call();
+        listener.getLogger().flush();
+        return result;
+    }
+
+    private static String withoutFirstLine(ByteArrayOutputStream log) {
+        String s = log.toString();
+        return s.substring(s.indexOf('\n') + 1);
+    }
+}
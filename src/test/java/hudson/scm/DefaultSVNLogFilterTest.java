@@ -178,4 +178,27 @@ public class DefaultSVNLogFilterTest extends AbstractSubversionTest {
         assertFalse(filter.isIncluded(e));
     }
 
+    @Test
+    public void fixedPrefixOfIncludedRegions() throws Exception {
+        assertEquals("/trunk/module", DefaultSVNLogFilter.getFixedPrefix(Pattern.compile("/trunk/module/.*")));
+        assertEquals("/trunk/module", DefaultSVNLogFilter.getFixedPrefix(Pattern.compile("/trunk/module/src.*\\.java")));
+        assertEquals("/trunk/my.module/pom.xml", DefaultSVNLogFilter.getFixedPrefix(Pattern.compile("/trunk/my\\.module/pom\\.xml")));
+        assertNull(DefaultSVNLogFilter.getFixedPrefix(Pattern.compile("/trunk.*")));
+        assertNull(DefaultSVNLogFilter.getFixedPrefix(Pattern.compile(".*/module/.*")));
+        assertNull(DefaultSVNLogFilter.getFixedPrefix(Pattern.compile("/trunk/a/.*|/trunk/b/.*")));
+        assertNull(DefaultSVNLogFilter.getFixedPrefix(Pattern.compile("/trunk/module/.*", Pattern.CASE_INSENSITIVE)));
+        // a quantifier applies to the character before it
+        assertEquals("/trunk", DefaultSVNLogFilter.getFixedPrefix(Pattern.compile("/trunk/src/*.java")));
+        assertEquals("/trunk", DefaultSVNLogFilter.getFixedPrefix(Pattern.compile("/trunk/modules?/.*")));
+        assertEquals("/trunk", DefaultSVNLogFilter.getFixedPrefix(Pattern.compile("/trunk/module/+pom\\.xml")));
+        assertEquals("/trunk", DefaultSVNLogFilter.getFixedPrefix(Pattern.compile("/trunk/module{1,2}/.*")));
+        assertEquals("/trunk/a", DefaultSVNLogFilter.getFixedPrefix(Pattern.compile("/trunk/a/b\\.*")));
+        assertNull(DefaultSVNLogFilter.getFixedPrefix(Pattern.compile("/trunk/*")));
+
+        DefaultSVNLogFilter filter = new DefaultSVNLogFilter(noPatterns, compile("/trunk/a/.*", "/trunk/b/.*"), noUsers, null, noPatterns, false);
+        assertEquals(Arrays.asList("/trunk/a", "/trunk/b"), filter.getIncludedPathPrefixes());
+        filter = new DefaultSVNLogFilter(noPatterns, compile("/trunk/a/.*", ".*\\.java"), noUsers, null, noPatterns, false);
+        assertNull(filter.getIncludedPathPrefixes());
+    }
+
 }
@@ -0,0 +1,92 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import hudson.model.Job;
+import hudson.scm.JobLocationIndex.Location;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Test;
+
+@SuppressWarnings("rawtypes")
+public class JobLocationIndexTest {
+
+    private final UUID uuid = UUID.randomUUID();
+
+    private static List<List<Location>> scm(Location... locations) {
+        return Collections.singletonList(Arrays.asList(locations));
+    }
+
+    private static Set<String> paths(String... paths) {
+        return new HashSet<String>(Arrays.asList(paths));
+    }
+
+    @Test
+    public void matchesFilesAndDirectoriesBelowTheLocation() {
+        JobLocationIndex index = new JobLocationIndex();
+        Job trunk = mock(Job.class);
+        Job branch = mock(Job.class);
+        Location trunkLocation = new Location(uuid, "https://svn.company.com/project/trunk", "trunk");
+        index.put(trunk, scm(trunkLocation));
+        index.put(branch, scm(new Location(uuid, "https://svn.company.com/project/branches/b1", "branches/b1")));
+
+        Map<Job, Set<Location>> matches = index.lookup(uuid, paths("trunk/src/Test.java"));
+        assertEquals(Collections.singleton(trunk), matches.keySet());
+        assertTrue(matches.get(trunk).contains(trunkLocation));
+
+        assertEquals(Collections.singleton(trunk), index.lookup(uuid, paths("trunk")).keySet());
+        assertEquals(Collections.singleton(trunk), index.lookup(uuid, paths("trunk/")).keySet());
+        assertTrue(index.lookup(uuid, paths("trunkfoo/bar")).isEmpty());
+        assertTrue(index.lookup(uuid, paths("tags/src/")).isEmpty());
+        assertTrue(index.lookup(UUID.randomUUID(), paths("trunk/src/Test.java")).isEmpty());
+        assertEquals(2, index.lookup(uuid, paths("trunk/a", "branches/b1/b")).size());
+    }
+
+    @Test
+    public void locationAtRootMatchesEverything() {
+        JobLocationIndex index = new JobLocationIndex();
+        Job whole = mock(Job.class);
+        index.put(whole, scm(new Location(uuid, "https://svn.company.com/project", "")));
+
+        assertEquals(Collections.singleton(whole), index.lookup(uuid, paths("tags/src/")).keySet());
+        assertEquals(Collections.singleton(whole), index.lookup(uuid, paths("/somepath")).keySet());
+    }
+
+    @Test
+    public void locationOutsideOfTheRepositoryRootMatchesNothing() {
+        JobLocationIndex index = new JobLocationIndex();
+        Job job = mock(Job.class);
+        // the configured URL is not below the root the repository reported
+        index.put(job, scm(new Location(uuid, "https://svn.company.com/project/trunk", null)));
+
+        assertTrue(index.lookup(uuid, paths("trunk/src/Test.java")).isEmpty());
+        assertTrue(index.lookup(uuid, paths("/somepath")).isEmpty());
+        assertEquals(1, index.get(job).get(0).size());
+    }
+
+    @Test
+    public void removeAndReplace() {
+        JobLocationIndex index = new JobLocationIndex();
+        Job job = mock(Job.class);
+        index.put(job, scm(new Location(uuid, "https://svn.company.com/project/trunk", "trunk")));
+        index.put(job, scm(new Location(uuid, "https://svn.company.com/project/branches/b1", "branches/b1")));
+
+        assertTrue(index.lookup(uuid, paths("trunk/a")).isEmpty());
+        assertEquals(Collections.singleton(job), index.lookup(uuid, paths("branches/b1/a")).keySet());
+
+        index.remove(job);
+        assertTrue(index.isEmpty());
+        assertFalse(index.hasRepository(uuid));
+        assertTrue(index.lookup(uuid, paths("branches/b1/a")).isEmpty());
+    }
+}
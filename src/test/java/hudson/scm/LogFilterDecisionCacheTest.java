@@ -0,0 +1,97 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import hudson.util.StreamTaskListener;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.Date;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
+
+public class LogFilterDecisionCacheTest {
+
+    private int size;
+
+    private final Pattern[] none = {};
+
+    @Before
+    public void enable() {
+        size = LogFilterDecisionCache.SIZE;
+        LogFilterDecisionCache.SIZE = 100;
+        LogFilterDecisionCache.clear();
+    }
+
+    @After
+    public void restore() {
+        LogFilterDecisionCache.SIZE = size;
+        LogFilterDecisionCache.clear();
+    }
+
+    private DefaultSVNLogFilter filter(String... excluded) {
+        Pattern[] patterns = new Pattern[excluded.length];
+        for (int i = 0; i < excluded.length; i++) {
+            patterns[i] = Pattern.compile(excluded[i]);
+        }
+        return new DefaultSVNLogFilter(patterns, none, Collections.<String>emptySet(), null, none, false);
+    }
+
+    @Test
+    public void cleanRangesMerge() {
+        DefaultSVNLogFilter filter = filter("/trunk/docs/.*");
+        String url = "https://svn.company.com/trunk";
+        assertEquals(9, LogFilterDecisionCache.getCleanUpTo(filter, "uuid", "creds", url, 10));
+
+        LogFilterDecisionCache.putClean(filter, "uuid", "creds", url, 10, 20);
+        LogFilterDecisionCache.putClean(filter, "uuid", "creds", url, 21, 30);
+        assertEquals(30, LogFilterDecisionCache.getCleanUpTo(filter, "uuid", "creds", url, 10));
+        assertEquals(30, LogFilterDecisionCache.getCleanUpTo(filter, "uuid", "creds", url, 25));
+        assertEquals(30, LogFilterDecisionCache.getCleanUpTo(filter, "uuid", "creds", url, 31));
+
+        // other repository, URL or settings
+        assertEquals(24, LogFilterDecisionCache.getCleanUpTo(filter, "other", "creds", url, 25));
+        assertEquals(24, LogFilterDecisionCache.getCleanUpTo(filter, "uuid", "creds", url + "/sub", 25));
+        assertEquals(24, LogFilterDecisionCache.getCleanUpTo(filter("/trunk/site/.*"), "uuid", "creds", url, 25));
+        assertEquals(24, LogFilterDecisionCache.getCleanUpTo(filter, null, "creds", url, 25));
+        // path-based authorization may hide other paths from other credentials
+        assertEquals(24, LogFilterDecisionCache.getCleanUpTo(filter, "uuid", "other", url, 25));
+        assertEquals(24, LogFilterDecisionCache.getCleanUpTo(filter, "uuid", null, url, 25));
+    }
+
+    @Test
+    public void decisionsAreKeptByCredentialsWithTheirMessages() {
+        DefaultSVNLogFilter filter = filter("/trunk/docs/.*");
+        SVNLogEntry docs = entry(5, "/trunk/docs/index.html");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filter.setTaskListener(new StreamTaskListener(out));
+        assertEquals(false, LogFilterDecisionCache.isIncluded(filter, "uuid", "creds", docs));
+        String messages = out.toString();
+        assertTrue(messages, messages.contains("/trunk/docs/index.html"));
+
+        // a reused decision prints the same messages
+        out.reset();
+        assertEquals(false, LogFilterDecisionCache.isIncluded(filter, "uuid", "creds", entry(5, "/trunk/src/Main.java")));
+        assertEquals(messages, out.toString());
+
+        // other credentials may see other paths of the same revision
+        assertEquals(true, LogFilterDecisionCache.isIncluded(filter, "uuid", "other", entry(5, "/trunk/src/Main.java")));
+    }
+
+    private static SVNLogEntry entry(long revision, String path) {
+        return new SVNLogEntry(Collections.singletonMap(path, new SVNLogEntryPath(path, 'M', null, -1)),
+                revision, "alice", new Date(), "message");
+    }
+
+    @Test
+    public void sameSettingsSameFingerprint() {
+        assertEquals(filter("/a/.*", "/b/.*").getFingerprint(), filter("/a/.*", "/b/.*").getFingerprint());
+        assertEquals(false, filter("/a/.*", "/b/.*").getFingerprint().equals(filter("/a/.*/b/.*").getFingerprint()));
+    }
+}
@@ -0,0 +1,98 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class PathPatternMatcherTest {
+
+    private static final String[] REGEXES = {
+        "/trunk/module/.*",
+        "/trunk/module",
+        "/trunk/docs/.*\\.txt",
+        "/trunk/my\\.module/pom\\.xml",
+        "/branches/[^/]+/src/.*",
+        ".*/target/.*",
+        "/trunk/(a|b)/.*",
+        "/trunk/(x)\\1/.*",
+        "/trunk/\\Qquoted.dir\\E/.*",
+        "/trunk/foo\\.*",
+        "/trunk/(?<dir>[ab])/.*",
+        "/branches/(?<dir>b1|xx)/.*",
+        ".*(?<!/target)/pom\\.xml",
+    };
+
+    private static final String[] SEGMENTS = {
+        "trunk", "branches", "module", "docs", "a", "b", "xx", "x", "my.module", "mymodule", "pom.xml",
+        "src", "target", "readme.txt", "readme.md", "b1", "quoted.dir", "foo", "foo..", "line\nbreak", "",
+    };
+
+    @Test
+    public void matchesLikeEachPatternAlone() {
+        Random random = new Random(42);
+        Pattern[] patterns = new Pattern[REGEXES.length + 1];
+        for (int i = 0; i < REGEXES.length; i++) {
+            patterns[i] = Pattern.compile(REGEXES[i]);
+        }
+        patterns[REGEXES.length] = Pattern.compile("/TRUNK/CASE/.*", Pattern.CASE_INSENSITIVE);
+
+        for (int n = 0; n < 20; n++) {
+            // every subset of patterns, some of them empty
+            List<Pattern> subset = new ArrayList<Pattern>();
+            for (Pattern pattern : patterns) {
+                if (random.nextBoolean()) {
+                    subset.add(pattern);
+                }
+            }
+            PathPatternMatcher matcher = new PathPatternMatcher(subset.toArray(new Pattern[subset.size()]));
+            for (int i = 0; i < 2000; i++) {
+                String path = randomPath(random);
+                boolean expected = false;
+                for (Pattern pattern : subset) {
+                    expected |= pattern.matcher(path).matches();
+                }
+                assertEquals(subset + " on " + path, expected, matcher.matches(path));
+            }
+        }
+    }
+
+    @Test
+    public void namedGroupsAreMatchedSeparately() {
+        PathPatternMatcher matcher = new PathPatternMatcher(new Pattern[] {
+            Pattern.compile("/trunk/(?<dir>[ab])/.*"),
+            Pattern.compile("/branches/(?<dir>b1)/.*"),
+            Pattern.compile("/tags/(?<=/tags/)x/.*"),
+        });
+        assertTrue(matcher.matches("/trunk/a/pom.xml"));
+        assertTrue(matcher.matches("/branches/b1/pom.xml"));
+        assertTrue(matcher.matches("/tags/x/pom.xml"));
+        assertFalse(matcher.matches("/trunk/c/pom.xml"));
+    }
+
+    @Test
+    public void literal() {
+        assertEquals("/trunk/my.module", PathPatternMatcher.literal("/trunk/my\\.module"));
+        assertEquals(null, PathPatternMatcher.literal("/trunk/my.module"));
+        assertEquals(null, PathPatternMatcher.literal("/trunk/\\d"));
+        assertEquals(null, PathPatternMatcher.literal("/trunk/\\"));
+    }
+
+    private static String randomPath(Random random) {
+        StringBuilder path = new StringBuilder();
+        int depth = 1 + random.nextInt(5);
+        for (int i = 0; i < depth; i++) {
+            path.append('/').append(SEGMENTS[random.nextInt(SEGMENTS.length)]);
+        }
+        if (random.nextInt(4) == 0) {
+            path.append('/');
+        }
+        return path.toString();
+    }
+}
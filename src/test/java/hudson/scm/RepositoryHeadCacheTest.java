@@ -0,0 +1,103 @@
+package hudson.scm;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.wc.SVNInfo;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RepositoryHeadCacheTest {
+
+    private static final UUID UUID1 = UUID.fromString("13f79535-47bb-0310-9956-ffa450edef68");
+    private static final UUID UUID2 = UUID.fromString("4c7d1b56-6ce5-4b0a-9e4a-0d1ad6b1c7d2");
+
+    private long ttl;
+    private int size;
+
+    @Before
+    public void setUp() {
+        ttl = RepositoryHeadCache.TTL;
+        size = RepositoryHeadCache.SIZE;
+        RepositoryHeadCache.TTL = 60000;
+        RepositoryHeadCache.clear();
+    }
+
+    @After
+    public void tearDown() {
+        RepositoryHeadCache.clear();
+        RepositoryHeadCache.TTL = ttl;
+        RepositoryHeadCache.SIZE = size;
+    }
+
+    @Test
+    public void sharedByTheUrlsOfARepository() throws Exception {
+        RepositoryHeadCache.record("svn://localhost/repo/trunk", info(UUID1, "svn://localhost/repo", 5));
+        RepositoryHeadCache.record("svn://localhost/repo/branches/b", info(UUID1, "svn://localhost/repo", 7));
+        assertThat(RepositoryHeadCache.getYoungestRevision("svn://localhost/repo/trunk"), is(7L));
+        assertThat(RepositoryHeadCache.getYoungestRevision("svn://localhost/repo/branches/b"), is(7L));
+        assertThat(RepositoryHeadCache.getYoungestRevision("svn://localhost/repo/tags"), is(-1L));
+    }
+
+    @Test
+    public void lateOlderAnswerDoesNotWin() throws Exception {
+        RepositoryHeadCache.record("svn://localhost/repo/trunk", info(UUID1, "svn://localhost/repo", 7));
+        RepositoryHeadCache.record("svn://localhost/repo/trunk", info(UUID1, "svn://localhost/repo", 5));
+        assertThat(RepositoryHeadCache.getYoungestRevision("svn://localhost/repo/trunk"), is(7L));
+    }
+
+    @Test
+    public void notifyCommitRefreshesTheRepository() throws Exception {
+        RepositoryHeadCache.record("svn://localhost/repo/trunk", info(UUID1, "svn://localhost/repo", 5));
+        RepositoryHeadCache.record("svn://localhost/other/trunk", info(UUID2, "svn://localhost/other", 3));
+        RepositoryHeadCache.notifyCommit(UUID1, 6);
+        assertThat(RepositoryHeadCache.getYoungestRevision("svn://localhost/repo/trunk"), is(6L));
+        assertThat(RepositoryHeadCache.getYoungestRevision("svn://localhost/other/trunk"), is(3L));
+        // a notification without revision drops the cached one
+        RepositoryHeadCache.notifyCommit(UUID1, -1);
+        assertThat(RepositoryHeadCache.getYoungestRevision("svn://localhost/repo/trunk"), is(-1L));
+        assertThat(RepositoryHeadCache.getYoungestRevision("svn://localhost/other/trunk"), is(3L));
+    }
+
+    @Test
+    public void expiredRevisionsAreNotUsed() throws Exception {
+        RepositoryHeadCache.TTL = 1;
+        RepositoryHeadCache.record("svn://localhost/repo/trunk", info(UUID1, "svn://localhost/repo", 5));
+        Thread.sleep(10);
+        assertThat(RepositoryHeadCache.getYoungestRevision("svn://localhost/repo/trunk"), is(-1L));
+    }
+
+    @Test
+    public void disabledWithoutTtl() throws Exception {
+        RepositoryHeadCache.TTL = 0;
+        RepositoryHeadCache.record("svn://localhost/repo/trunk", info(UUID1, "svn://localhost/repo", 5));
+        assertThat(RepositoryHeadCache.getYoungestRevision("svn://localhost/repo/trunk"), is(-1L));
+    }
+
+    @Test
+    public void forgetsTheLeastRecentlyPolledUrls() throws Exception {
+        RepositoryHeadCache.SIZE = 2;
+        RepositoryHeadCache.record("svn://localhost/repo/a", info(UUID1, "svn://localhost/repo", 5));
+        RepositoryHeadCache.record("svn://localhost/repo/b", info(UUID1, "svn://localhost/repo", 5));
+        assertThat(RepositoryHeadCache.getYoungestRevision("svn://localhost/repo/a"), is(5L));
+        RepositoryHeadCache.record("svn://localhost/repo/c", info(UUID1, "svn://localhost/repo", 5));
+        assertThat(RepositoryHeadCache.getYoungestRevision("svn://localhost/repo/a"), is(5L));
+        assertThat(RepositoryHeadCache.getYoungestRevision("svn://localhost/repo/b"), is(-1L));
+        assertThat(RepositoryHeadCache.getYoungestRevision("svn://localhost/repo/c"), is(5L));
+    }
+
+    private static SVNInfo info(UUID uuid, String root, long revision) throws Exception {
+        SVNInfo info = mock(SVNInfo.class);
+        when(info.getRepositoryUUID()).thenReturn(uuid.toString());
+        when(info.getRepositoryRootURL()).thenReturn(SVNURL.parseURIEncoded(root));
+        when(info.getRevision()).thenReturn(SVNRevision.create(revision));
+        return info;
+    }
+}
@@ -0,0 +1,113 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.UUID;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RepositoryRootCacheTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void longestRootWins() {
+        RepositoryRootCache cache = new RepositoryRootCache(null);
+        UUID outer = UUID.randomUUID();
+        UUID inner = UUID.randomUUID();
+        cache.put("https://svn.company.com/repos", outer);
+        cache.put("https://svn.company.com/repos/project", inner);
+
+        assertEquals(inner, cache.lookup("https://svn.company.com/repos/project/trunk").uuid);
+        assertEquals(inner, cache.lookup("https://svn.company.com/repos/project").uuid);
+        assertEquals(outer, cache.lookup("https://svn.company.com/repos/projecttwo/trunk").uuid);
+        assertEquals("https://svn.company.com/repos", cache.lookup("https://svn.company.com/repos/other").root);
+        assertNull(cache.lookup("https://svn.company.com/reposx/trunk"));
+        assertNull(cache.lookup("https://other.company.com/repos/project"));
+    }
+
+    @Test
+    public void survivesRestart() throws Exception {
+        File file = new File(tmp.getRoot(), "caches/roots.txt");
+        UUID uuid = UUID.randomUUID();
+        new RepositoryRootCache(file).put("svn://svn.company.com/repos", uuid);
+
+        RepositoryRootCache reloaded = new RepositoryRootCache(file);
+        assertEquals(uuid, reloaded.lookup("svn://svn.company.com/repos/trunk").uuid);
+    }
+
+    @Test
+    public void recreatedRepositoryReplacesItsUuid() throws Exception {
+        File file = new File(tmp.getRoot(), "caches/roots.txt");
+        RepositoryRootCache cache = new RepositoryRootCache(file);
+        cache.put("svn://svn.company.com/repos", UUID.randomUUID());
+        UUID recreated = UUID.randomUUID();
+        cache.put("svn://svn.company.com/repos", recreated);
+
+        assertEquals(recreated, cache.lookup("svn://svn.company.com/repos/trunk").uuid);
+        assertEquals(recreated, new RepositoryRootCache(file).lookup("svn://svn.company.com/repos/trunk").uuid);
+    }
+
+    @Test
+    public void removedRepositoryIsForgotten() throws Exception {
+        File file = new File(tmp.getRoot(), "caches/roots.txt");
+        RepositoryRootCache cache = new RepositoryRootCache(file);
+        UUID outer = UUID.randomUUID();
+        cache.put("svn://svn.company.com/repos", outer);
+        cache.put("svn://svn.company.com/repos/project", UUID.randomUUID());
+        cache.remove("svn://svn.company.com/repos/project");
+
+        assertEquals(outer, cache.lookup("svn://svn.company.com/repos/project/trunk").uuid);
+        assertEquals(outer, new RepositoryRootCache(file).lookup("svn://svn.company.com/repos/project/trunk").uuid);
+        cache.remove("svn://svn.company.com/repos");
+        assertNull(cache.lookup("svn://svn.company.com/repos/project/trunk"));
+        assertNull(new RepositoryRootCache(file).lookup("svn://svn.company.com/repos/project/trunk"));
+    }
+
+    @Test
+    public void forgetsTheLeastRecentlyUsedRepositories() {
+        int size = RepositoryRootCache.SIZE;
+        RepositoryRootCache.SIZE = 2;
+        try {
+            RepositoryRootCache cache = new RepositoryRootCache(null);
+            cache.put("svn://a/repos", UUID.randomUUID());
+            cache.put("svn://b/repos", UUID.randomUUID());
+            cache.lookup("svn://a/repos").used = 2;
+            cache.lookup("svn://b/repos").used = 1;
+            cache.put("svn://c/repos", UUID.randomUUID());
+
+            assertNotNull(cache.lookup("svn://a/repos/trunk"));
+            assertNull(cache.lookup("svn://b/repos/trunk"));
+            assertNotNull(cache.lookup("svn://c/repos/trunk"));
+        } finally {
+            RepositoryRootCache.SIZE = size;
+        }
+    }
+
+    @Test
+    public void entriesExpire() throws Exception {
+        File file = new File(tmp.getRoot(), "caches/roots.txt");
+        UUID uuid = UUID.randomUUID();
+        // as written before the verification time was saved
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), Collections.singletonList(uuid + " svn://svn.company.com/repos"), StandardCharsets.UTF_8);
+
+        RepositoryRootCache cache = new RepositoryRootCache(file);
+        assertEquals(uuid, cache.lookup("svn://svn.company.com/repos/trunk").uuid);
+        assertTrue(cache.lookup("svn://svn.company.com/repos/trunk").isExpired());
+        cache.put("svn://svn.company.com/repos", uuid);
+        assertFalse(cache.lookup("svn://svn.company.com/repos/trunk").isExpired());
+        assertFalse(new RepositoryRootCache(file).lookup("svn://svn.company.com/repos/trunk").isExpired());
+    }
+}
@@ -0,0 +1,73 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import hudson.scm.RevisionStateStore.Entry;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RevisionStateStoreTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void recordsSurviveReload() throws Exception {
+        File file = new File(tmp.getRoot(), "svn-revisions.bin");
+        RevisionStateStore store = new RevisionStateStore(file);
+        store.record(1, Collections.singletonList(new Entry("https://svn.company.com/trunk", 10, false)));
+        store.record(3, Collections.singletonList(new Entry("https://svn.company.com/trunk", 12, false)));
+        store.record(3, Collections.singletonList(new Entry("https://svn.company.com/ext", 5, true)));
+
+        RevisionStateStore reloaded = new RevisionStateStore(file);
+        assertEquals(2, reloaded.get(3).size());
+        assertEquals(5, reloaded.get(3).get(1).revision);
+        assertEquals(true, reloaded.get(3).get(1).pinned);
+        assertEquals(Integer.valueOf(1), reloaded.floor(2));
+        assertNull(reloaded.floor(0));
+        assertNull(reloaded.get(2));
+    }
+
+    @Test
+    public void forgetsDeletedBuilds() throws Exception {
+        File file = new File(tmp.getRoot(), "svn-revisions.bin");
+        RevisionStateStore store = new RevisionStateStore(file);
+        store.record(1, Collections.singletonList(new Entry("https://svn.company.com/trunk", 10, false)));
+        store.record(2, Collections.singletonList(new Entry("https://svn.company.com/trunk", 11, false)));
+        store.forget(2);
+
+        assertEquals(Integer.valueOf(1), store.floor(2));
+        assertEquals(Integer.valueOf(1), new RevisionStateStore(file).floor(2));
+    }
+
+    @Test
+    public void ignoresTruncatedRecord() throws Exception {
+        File file = new File(tmp.getRoot(), "svn-revisions.bin");
+        RevisionStateStore store = new RevisionStateStore(file);
+        store.record(1, Collections.singletonList(new Entry("https://svn.company.com/trunk", 10, false)));
+        long length = file.length();
+        store.record(2, Arrays.asList(new Entry("https://svn.company.com/trunk", 11, false)));
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length + 6);
+        } finally {
+            raf.close();
+        }
+
+        RevisionStateStore reloaded = new RevisionStateStore(file);
+        assertNull(reloaded.get(2));
+        assertEquals(10, reloaded.get(1).get(0).revision);
+
+        // the file was repaired, so new records can be read back
+        reloaded.record(2, Collections.singletonList(new Entry("https://svn.company.com/trunk", 11, false)));
+        assertEquals(11, new RevisionStateStore(file).get(2).get(0).revision);
+    }
+}
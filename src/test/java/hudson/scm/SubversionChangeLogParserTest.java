@@ -4,9 +4,13 @@ import hudson.scm.SubversionChangeLogSet.LogEntry;
 import hudson.scm.SubversionChangeLogSet.Path;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -57,6 +61,98 @@ public class SubversionChangeLogParserTest extends AbstractSubversionTest {
         andPathsMustNotStartWithSlash();
     }
     
+    @Test
+    public void streamingParserMatchesDigester() throws Exception {
+        File file = createLargeChangelog(200, 250);
+        for (File f : new File[] {file, resource("changelog_unsorted.xml"), resource("changelog_relativepath.xml")}) {
+            List<LogEntry> expected = SubversionChangeLogParser.parseWithDigester(f);
+            List<LogEntry> actual = SubversionChangeLogParser.parseWithStax(f);
+            Assert.assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                LogEntry e = expected.get(i);
+                LogEntry a = actual.get(i);
+                Assert.assertEquals(e, a);
+                Assert.assertEquals(e.getUser(), a.getUser());
+                Assert.assertEquals(e.getPaths().size(), a.getPaths().size());
+                for (int j = 0; j < e.getPaths().size(); j++) {
+                    Path ep = e.getPaths().get(j);
+                    Path ap = a.getPaths().get(j);
+                    Assert.assertEquals(ep.getValue(), ap.getValue());
+                    Assert.assertEquals(ep.getPath(), ap.getPath());
+                    Assert.assertEquals(ep.getKind(), ap.getKind());
+                    Assert.assertEquals(ep.getEditType(), ap.getEditType());
+                    Assert.assertSame(a, ap.getLogEntry());
+                }
+            }
+        }
+
+        // entities, attributes and the order of the large changelog survive the streaming parser
+        List<LogEntry> large = SubversionChangeLogParser.parseWithStax(file);
+        Assert.assertEquals(200, large.size());
+        LogEntry last = large.get(199);
+        Assert.assertEquals(1199, last.getRevision());
+        Assert.assertEquals("merged & more 199", last.getMsg());
+        Assert.assertEquals(250, last.getPaths().size());
+        Path first = last.getPaths().get(0);
+        Assert.assertEquals("/project/branches/feature/module0/src/main/java/File0.java", first.getValue());
+        Assert.assertEquals(EditType.ADD, first.getEditType());
+        Assert.assertEquals("dir", first.getKind());
+        Assert.assertEquals("ws/project/branches/feature/module0/src/main/java/File0.java", first.getPath());
+    }
+
+    @Test
+    public void lazyChangeLogSetMatchesEagerOne() throws Exception {
+        File large = createLargeChangelog(200, 250);
+        for (File f : new File[] {large, resource("changelog_unsorted.xml"), resource("changelog_relativepath.xml")}) {
+            for (boolean ignoreDirPropChanges : new boolean[] {false, true}) {
+                SubversionChangeLogSet eager = new SubversionChangeLogParser(ignoreDirPropChanges).parse(null, null, f);
+                SubversionChangeLogSet lazy = SubversionChangeLogParser.parseLazily(null, null, f, ignoreDirPropChanges);
+                Assert.assertFalse(eager.isLazy());
+                Assert.assertTrue(lazy.isLazy());
+                Assert.assertEquals(eager.getLogs().size(), lazy.getLogs().size());
+                for (int i = 0; i < eager.getLogs().size(); i++) {
+                    LogEntry e = eager.getLogs().get(i);
+                    LogEntry a = lazy.getLogs().get(i);
+                    Assert.assertEquals(e.getRevision(), a.getRevision());
+                    Assert.assertEquals(e.getMsg(), a.getMsg());
+                    Assert.assertEquals(e.getPaths().size(), a.getPaths().size());
+                    Assert.assertEquals(e.getAffectedFiles().size(), a.getAffectedFiles().size());
+                    for (int j = 0; j < e.getPaths().size(); j++) {
+                        Assert.assertEquals(e.getPaths().get(j).getValue(), a.getPaths().get(j).getValue());
+                        Assert.assertEquals(e.getPaths().get(j).getPath(), a.getPaths().get(j).getPath());
+                        Assert.assertSame(a, a.getPaths().get(j).getLogEntry());
+                    }
+                }
+            }
+        }
+    }
+
+    private File createLargeChangelog(int entries, int pathsPerEntry) throws IOException {
+        File file = tmp.newFile();
+        Writer w = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<log>\n");
+            for (int i = 0; i < entries; i++) {
+                w.write("<logentry revision=\"" + (1000 + i) + "\">\n<author>user" + (i % 7) + "</author>\n");
+                w.write("<date>2014-05-03T12:45:33.664887Z</date>\n<paths>\n");
+                for (int j = 0; j < pathsPerEntry; j++) {
+                    String path = "/project/branches/feature/module" + (j % 13) + "/src/main/java/File" + j + ".java";
+                    w.write("<path action=\"" + "AMD".charAt(j % 3) + "\" kind=\"" + (j % 10 == 0 ? "dir" : "file")
+                            + "\" localPath=\"ws" + path + "\">" + path + "</path>\n");
+                }
+                w.write("</paths>\n<msg>merged &amp; more " + i + "</msg>\n</logentry>\n");
+            }
+            w.write("</log>\n");
+        } finally {
+            w.close();
+        }
+        return file;
+    }
+
+    private static File resource(String name) throws URISyntaxException {
+        return new File(SubversionChangeLogParserTest.class.getResource(name).toURI().getSchemeSpecificPart());
+    }
+
     private void givenAChangelogFileWithUnsortedPathsInLegacyFormat() throws URISyntaxException {
         URL url = SubversionChangeLogParserTest.class.getResource("changelog_unsorted.xml");
         this.changelogFile = new File(url.toURI().getSchemeSpecificPart());
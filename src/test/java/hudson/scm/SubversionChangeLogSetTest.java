@@ -69,4 +69,61 @@ public class SubversionChangeLogSetTest {
         resultItems = SubversionChangeLogSet.removeDuplicatedEntries(items);
         Assert.assertEquals(resultItems.size(), 7);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void removeDuplicateEntriesMergesLocalPaths() {
+        SubversionChangeLogSet.LogEntry first = buildChangeLogEntry(39, "changed foo");
+        first.addPath(buildPath("/projectX/trunk/foo", null));
+        first.addPath(buildPath("/projectX/trunk/bar", "wc1/bar"));
+        SubversionChangeLogSet.LogEntry second = buildChangeLogEntry(39, "changed foo");
+        second.addPath(buildPath("/projectX/trunk/foo", "wc2/foo"));
+
+        List<SubversionChangeLogSet.LogEntry> items = new ArrayList<>();
+        items.add(first);
+        items.add(second);
+        List<SubversionChangeLogSet.LogEntry> resultItems = SubversionChangeLogSet.removeDuplicatedEntries(items);
+
+        Assert.assertEquals(1, resultItems.size());
+        Assert.assertSame(first, resultItems.get(0));
+        Assert.assertEquals("wc2/foo", first.getPaths().get(0).getPath());
+        Assert.assertEquals("wc1/bar", first.getPaths().get(1).getPath());
+    }
+
+    @Test
+    public void removeDuplicateEntriesKeepsTheFirstOfEachRevisionInOrder() {
+        // the same revisions logged for three modules, the last two of which have externals
+        List<SubversionChangeLogSet.LogEntry> items = new ArrayList<>();
+        List<SubversionChangeLogSet.LogEntry> firsts = new ArrayList<>();
+        for (int copy = 0; copy < 3; copy++) {
+            for (int revision = 50; revision > 0; revision--) {
+                SubversionChangeLogSet.LogEntry entry = buildChangeLogEntry(revision, "Test msg");
+                for (int path = 0; path < 10; path++) {
+                    entry.addPath(buildPath("/trunk/module/File" + path + ".java", copy == 0 ? null : "ext" + copy + "/File" + path + ".java"));
+                }
+                items.add(entry);
+                if (copy == 0) {
+                    firsts.add(entry);
+                }
+            }
+        }
+
+        List<SubversionChangeLogSet.LogEntry> resultItems = SubversionChangeLogSet.removeDuplicatedEntries(items);
+
+        Assert.assertEquals(50, resultItems.size());
+        for (int i = 0; i < resultItems.size(); i++) {
+            SubversionChangeLogSet.LogEntry entry = resultItems.get(i);
+            Assert.assertSame(firsts.get(i), entry);
+            Assert.assertEquals(10, entry.getPaths().size());
+            // the local path of the last copy wins
+            Assert.assertEquals("ext2/File3.java", entry.getPaths().get(3).getPath());
+        }
+    }
+
+    private static SubversionChangeLogSet.Path buildPath(String value, String localPath) {
+        SubversionChangeLogSet.Path path = new SubversionChangeLogSet.Path();
+        path.setAction("M");
+        path.setValue(value);
+        path.setLocalPath(localPath);
+        return path;
+    }
+}
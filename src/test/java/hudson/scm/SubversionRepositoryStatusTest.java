@@ -2,6 +2,7 @@ package hudson.scm;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import hudson.model.AbstractProject;
@@ -11,10 +12,14 @@ import hudson.scm.SubversionRepositoryStatus.JobProvider;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 
 import javax.servlet.ServletException;
 
@@ -52,51 +57,62 @@ public class SubversionRepositoryStatusTest {
         verify(project, never()).getScm();
     }
 
+    @SuppressWarnings("rawtypes")
     @Test
-    public void testDoModuleLocationHasAPathFromAffectedPath_affectedPathIsInConfiguredRepo() {
-    	// Given
-    	SubversionRepositoryStatus.JobTriggerListenerImpl listener = new SubversionRepositoryStatus.JobTriggerListenerImpl();
-    	String configuredRepoFullPath = "https://svn.company.com/project/trunk";
-    	String rootRepoPath = "https://svn.company.com/project";
-
-    	Set<String> affectedPath = Collections.singleton("trunk/src/Test.java");
-
-    	// When
-    	boolean containsAffectedPath = listener.doModuleLocationHasAPathFromAffectedPath(configuredRepoFullPath, rootRepoPath, affectedPath);
-
-    	// Expect
-    	Assert.assertTrue("affected path should be true", containsAffectedPath);
-    }
-
-    @Test
-    public void testDoModuleLocationHasAPathFromAffectedPath_affectedPathIsNotInConfiguredRepo() {
-    	// Given
-    	SubversionRepositoryStatus.JobTriggerListenerImpl listener = new SubversionRepositoryStatus.JobTriggerListenerImpl();
-    	String configuredRepoFullPath = "https://svn.company.com/project/trunk";
-    	String rootRepoPath = "https://svn.company.com/project";
+    public void reindexesInvalidatedJobs() {
+        SubversionRepositoryStatus.JobTriggerListenerImpl listener = new SubversionRepositoryStatus.JobTriggerListenerImpl();
+        final AbstractProject project = mock(AbstractProject.class);
+        listener.setJobProvider(() -> Collections.<Job>singletonList(project));
 
-    	Set<String> affectedPath = Collections.singleton("tags/src/");
+        listener.onNotify(UUID.randomUUID(), -1, Collections.singleton("/somepath"));
+        listener.onNotify(UUID.randomUUID(), -1, Collections.singleton("/somepath"));
+        verify(project, times(1)).getSCMs();
 
-    	// When
-    	boolean containsAffectedPath = listener.doModuleLocationHasAPathFromAffectedPath(configuredRepoFullPath, rootRepoPath, affectedPath);
+        // e.g. a build wrote new externals
+        listener.invalidate(project);
+        listener.onNotify(UUID.randomUUID(), -1, Collections.singleton("/somepath"));
+        verify(project, times(2)).getSCMs();
 
-    	// Expect
-    	Assert.assertFalse("affected path should be false", containsAffectedPath);
+        listener.remove(project);
+        listener.onNotify(UUID.randomUUID(), -1, Collections.singleton("/somepath"));
+        verify(project, times(2)).getSCMs();
     }
 
     @Test
-    public void testDoModuleLocationHasAPathFromAffectedPath_affectedPathIsNotInSameRepo() {
-    	// Given
-    	SubversionRepositoryStatus.JobTriggerListenerImpl listener = new SubversionRepositoryStatus.JobTriggerListenerImpl();
-    	String configuredRepoFullPath = "https://svn.company.com/project/trunk";
-    	String rootRepoPath = "https://svn.company.com/projecttwo";
-
-    	Set<String> affectedPath = Collections.singleton("trunk/src/Test.java");
-
-    	// When
-    	boolean containsAffectedPath = listener.doModuleLocationHasAPathFromAffectedPath(configuredRepoFullPath, rootRepoPath, affectedPath);
-
-    	// Expect
-    	Assert.assertFalse("affected path should be false", containsAffectedPath);
+    public void coalescesQueuedNotificationsOfARepository() throws Exception {
+        final CountDownLatch dispatching = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> dispatched = Collections.synchronizedList(new ArrayList<String>());
+        SubversionRepositoryStatus.NotificationQueue queue = new SubversionRepositoryStatus.NotificationQueue(1, 10) {
+            @Override
+            void dispatch(UUID uuid, long rev, Set<String> affectedPath) {
+                dispatched.add(uuid + "@" + rev + " " + new TreeSet<String>(affectedPath));
+                dispatching.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        UUID busy = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+
+        queue.submit(busy, 1, Collections.singleton("a"));
+        // the only thread is busy, so the next notifications wait in the queue
+        dispatching.await();
+        queue.submit(other, 5, Collections.singleton("b"));
+        queue.submit(other, 3, Collections.singleton("c"));
+        queue.submit(third, 4, Collections.singleton("x"));
+        queue.submit(other, 7, Collections.singleton("b"));
+        // an unknown revision stands for HEAD, which is newer than any known one
+        queue.submit(third, -1, Collections.singleton("y"));
+        queue.submit(third, 9, Collections.singleton("z"));
+        Assert.assertFalse(queue.awaitIdle(100));
+        release.countDown();
+
+        Assert.assertTrue(queue.awaitIdle(10000));
+        Assert.assertEquals(Arrays.asList(busy + "@1 [a]", other + "@7 [b, c]", third + "@-1 [x, y, z]"), dispatched);
     }
 }
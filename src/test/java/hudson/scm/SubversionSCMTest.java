@@ -443,6 +443,7 @@ public class SubversionSCMTest extends AbstractSubversionTest {
 
     private FreeStyleBuild sendCommitTrigger(FreeStyleProject p, boolean includeRevision) throws Exception {
         String repoUUID = "71c3de6d-444a-0410-be80-ed276b4c234a";
+        r.jenkins.getDescriptorByType(SCMTrigger.DescriptorImpl.class).synchronousPolling = true;
 
         WebClient wc = r.createWebClient();
         WebRequest wr = new WebRequest(new URL(r.getURL() + "subversion/" + repoUUID + "/notifyCommit"), HttpMethod.POST);
@@ -457,7 +458,8 @@ public class SubversionSCMTest extends AbstractSubversionTest {
         WebResponse resp = conn.getResponse(wr);
         assertTrue(r.isGoodHttpStatus(resp.getStatusCode()));
 
-        Thread.sleep(1000);
+        // the notification is dispatched in the background, and polls on the dispatching thread
+        assertTrue(SubversionRepositoryStatus.awaitNotifications(60000));
         r.waitUntilNoActivity();
         FreeStyleBuild b = p.getLastBuild();
         assertNotNull(b);
@@ -468,6 +470,7 @@ public class SubversionSCMTest extends AbstractSubversionTest {
     
     private FreeStyleBuild sendCommitTriggerMultipleSvnLocations(FreeStyleProject p, boolean includeRevision) throws Exception {
         String repoUUID = "71c3de6d-444a-0410-be80-ed276b4c234a";
+        r.jenkins.getDescriptorByType(SCMTrigger.DescriptorImpl.class).synchronousPolling = true;
 
         WebClient wc = r.createWebClient();
         WebRequest wr = new WebRequest(new URL(r.getURL() + "subversion/" + repoUUID + "/notifyCommit"), HttpMethod.POST);
@@ -483,7 +486,8 @@ public class SubversionSCMTest extends AbstractSubversionTest {
         WebResponse resp = conn.getResponse(wr);
         assertTrue(r.isGoodHttpStatus(resp.getStatusCode()));
 
-        Thread.sleep(1000);
+        // the notification is dispatched in the background, and polls on the dispatching thread
+        assertTrue(SubversionRepositoryStatus.awaitNotifications(60000));
         r.waitUntilNoActivity();
         FreeStyleBuild b = p.getLastBuild();
         assertNotNull(b);
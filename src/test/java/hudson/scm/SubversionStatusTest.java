@@ -28,12 +28,27 @@ import com.gargoylesoftware.htmlunit.HttpMethod;
 import com.gargoylesoftware.htmlunit.WebRequest;
 import com.gargoylesoftware.htmlunit.WebResponse;
 import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import hudson.ExtensionList;
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import hudson.model.User;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.triggers.SCMTrigger;
+import jenkins.model.Jenkins;
+import jenkins.scm.impl.subversion.SubversionSampleRepoRule;
+import org.acegisecurity.Authentication;
 import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.Issue;
 import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
 
 import java.net.URL;
+import java.util.Collections;
+import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -43,6 +58,9 @@ public class SubversionStatusTest {
     
     @Rule
     public JenkinsRule j = new JenkinsRule();
+
+    @Rule
+    public SubversionSampleRepoRule sampleRepo = new SubversionSampleRepoRule();
     
     @Test
     @Issue("SECURITY-724")
@@ -83,6 +101,47 @@ public class SubversionStatusTest {
         j.assertGoodStatus(page);
     }
 
+    @Test
+    public void notificationsOnlyTriggerTheJobsTheSenderCanRead() throws Exception {
+        sampleRepo.init();
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy().
+                grant(Jenkins.READ).everywhere().to("alice", "bob").
+                grant(Item.READ).onItems(j.createFreeStyleProject("a")).to("alice").
+                grant(Item.READ).onItems(j.createFreeStyleProject("b")).to("bob"));
+        for (String name : new String[]{"a", "b"}) {
+            FreeStyleProject p = j.jenkins.getItemByFullName(name, FreeStyleProject.class);
+            p.setScm(new SubversionSCM(sampleRepo.trunkUrl()));
+            p.addTrigger(new SCMTrigger(""));
+        }
+        j.jenkins.getDescriptorByType(SCMTrigger.DescriptorImpl.class).synchronousPolling = true;
+        UUID uuid = UUID.fromString(SVNRepositoryFactory.create(SVNURL.parseURIEncoded(sampleRepo.rootUrl())).getRepositoryUUID(true));
+
+        // the first notification builds the index, which must not be limited to the jobs alice can read
+        notifyCommit(User.getById("alice", true).impersonate(), uuid);
+        assertEquals(1, j.jenkins.getItemByFullName("a", FreeStyleProject.class).getBuilds().size());
+        assertEquals(0, j.jenkins.getItemByFullName("b", FreeStyleProject.class).getBuilds().size());
+
+        sampleRepo.write("file", "changed");
+        sampleRepo.svnkit("commit", "--message=changed", sampleRepo.wc());
+        notifyCommit(User.getById("bob", true).impersonate(), uuid);
+        assertEquals(1, j.jenkins.getItemByFullName("a", FreeStyleProject.class).getBuilds().size());
+        assertEquals(1, j.jenkins.getItemByFullName("b", FreeStyleProject.class).getBuilds().size());
+
+        notifyCommit(Jenkins.ANONYMOUS, uuid);
+        assertEquals(1, j.jenkins.getItemByFullName("a", FreeStyleProject.class).getBuilds().size());
+        assertEquals(1, j.jenkins.getItemByFullName("b", FreeStyleProject.class).getBuilds().size());
+    }
+
+    private void notifyCommit(Authentication auth, UUID uuid) throws Exception {
+        SubversionRepositoryStatus.Listener listener = ExtensionList.lookup(SubversionRepositoryStatus.Listener.class)
+                .get(SubversionRepositoryStatus.JobTriggerListenerImpl.class);
+        try (ACLContext ctx = ACL.as(auth)) {
+            listener.onNotify(uuid, -1, Collections.singleton("prj/trunk/file"));
+        }
+        j.waitUntilNoActivity();
+    }
+
     private void checkUrl(JenkinsRule.WebClient wc, String url) throws Exception {
         try {
             wc.goTo(url);
@@ -0,0 +1,143 @@
+package hudson.scm;
+
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
+import hudson.Util;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationProvider;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class SvnClientManagerPoolTest {
+
+    @Rule
+    public JenkinsRule r = new JenkinsRule();
+
+    private SVNURL url;
+    private long validateAfter;
+
+    @Before
+    public void setUp() throws Exception {
+        url = SVNURL.parseURIEncoded("svn://localhost/repo");
+        // the pooled managers are never connected, don't test their connections
+        validateAfter = SvnClientManagerPool.VALIDATE_AFTER;
+        SvnClientManagerPool.VALIDATE_AFTER = Long.MAX_VALUE;
+        SvnClientManagerPool.clear();
+    }
+
+    @After
+    public void tearDown() {
+        SvnClientManagerPool.clear();
+        SvnClientManagerPool.VALIDATE_AFTER = validateAfter;
+    }
+
+    @Test
+    public void reusesManagersOfTheSameCredentials() {
+        SvnClientManager first = SvnClientManagerPool.borrow(url, provider("id", "alice", "secret"));
+        first.dispose();
+        SvnClientManager second = SvnClientManagerPool.borrow(url, provider("id", "alice", "secret"));
+        assertThat(second, is(sameInstance(first)));
+        SvnClientManager third = SvnClientManagerPool.borrow(url, provider("id", "alice", "secret"));
+        assertThat(third, is(not(sameInstance(first))));
+        second.dispose();
+        third.dispose();
+    }
+
+    @Test
+    public void doesNotShareManagersBetweenServers() throws Exception {
+        SvnClientManager first = SvnClientManagerPool.borrow(url, provider("id", "alice", "secret"));
+        first.dispose();
+        SvnClientManager other = SvnClientManagerPool.borrow(SVNURL.parseURIEncoded("svn://otherhost/repo"),
+                provider("id", "alice", "secret"));
+        assertThat(other, is(not(sameInstance(first))));
+        other.dispose();
+    }
+
+    @Test
+    public void doesNotShareManagersBetweenCredentialsWithTheSameId() {
+        SvnClientManager first = SvnClientManagerPool.borrow(url, provider("id", "alice", "secret"));
+        first.dispose();
+        // e.g. the same id in another folder, or the secret was changed
+        SvnClientManager changedPassword = SvnClientManagerPool.borrow(url, provider("id", "alice", "changed"));
+        assertThat(changedPassword, is(not(sameInstance(first))));
+        SvnClientManager changedUsername = SvnClientManagerPool.borrow(url, provider("id", "bob", "secret"));
+        assertThat(changedUsername, is(not(sameInstance(first))));
+        changedPassword.dispose();
+        changedUsername.dispose();
+    }
+
+    @Test
+    public void credentialsKeyCoversTheSecret() {
+        String key = CredentialsSVNAuthenticationProviderImpl.computeCredentialsKey(credentials("id", "alice", "secret"), null);
+        assertThat(CredentialsSVNAuthenticationProviderImpl.computeCredentialsKey(credentials("id", "alice", "secret"), null), is(key));
+        assertThat(CredentialsSVNAuthenticationProviderImpl.computeCredentialsKey(credentials("id", "alice", "changed"), null), is(not(key)));
+        assertThat(CredentialsSVNAuthenticationProviderImpl.computeCredentialsKey(credentials("other", "alice", "secret"), null), is(not(key)));
+        assertThat(key.contains("secret"), is(false));
+    }
+
+    @Test
+    public void credentialsKeyIsNotAPlainHashOfTheSecret() throws Exception {
+        String key = provider("id", "alice", "secret").getCredentialsKey();
+        assertThat(key, is(CredentialsSVNAuthenticationProviderImpl.computeCredentialsKey(credentials("id", "alice", "secret"), null)));
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        for (String value : new String[] {UsernamePasswordCredentialsImpl.class.getName(), "alice", "secret"}) {
+            sha256.update(value.getBytes(StandardCharsets.UTF_8));
+            sha256.update((byte) 0);
+        }
+        assertThat(key.contains(Util.toHexString(sha256.digest())), is(false));
+    }
+
+    @Test
+    public void invalidatedManagersAreNotReused() {
+        SvnClientManager first = SvnClientManagerPool.borrow(url, provider("id", "alice", "secret"));
+        SvnClientManagerPool.invalidate(first);
+        first.dispose();
+        SvnClientManager second = SvnClientManagerPool.borrow(url, provider("id", "alice", "secret"));
+        assertThat(second, is(not(sameInstance(first))));
+        second.dispose();
+    }
+
+    @Test
+    public void expiredManagersAreNotReused() {
+        long idleTimeout = SvnClientManagerPool.IDLE_TIMEOUT;
+        SvnClientManagerPool.IDLE_TIMEOUT = -1;
+        try {
+            SvnClientManager first = SvnClientManagerPool.borrow(url, provider("id", "alice", "secret"));
+            first.dispose();
+            SvnClientManager second = SvnClientManagerPool.borrow(url, provider("id", "alice", "secret"));
+            assertThat(second, is(not(sameInstance(first))));
+            second.dispose();
+        } finally {
+            SvnClientManagerPool.IDLE_TIMEOUT = idleTimeout;
+        }
+    }
+
+    @Test
+    public void otherProvidersAreNotPooled() {
+        ISVNAuthenticationProvider provider = mock(ISVNAuthenticationProvider.class);
+        SvnClientManager first = SvnClientManagerPool.borrow(url, provider);
+        first.dispose();
+        SvnClientManager second = SvnClientManagerPool.borrow(url, provider);
+        assertThat(second, is(not(sameInstance(first))));
+        second.dispose();
+    }
+
+    private static UsernamePasswordCredentialsImpl credentials(String id, String username, String password) {
+        return new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, id, null, username, password);
+    }
+
+    private static CredentialsSVNAuthenticationProviderImpl provider(String id, String username, String password) {
+        return new CredentialsSVNAuthenticationProviderImpl(credentials(id, username, password));
+    }
+}
@@ -0,0 +1,132 @@
+package jenkins.scm.impl.subversion;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tmatesoft.svn.core.SVNNodeKind;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class NodeCacheTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private int snapshotDelay;
+
+    @Before
+    public void noBackgroundSnapshots() {
+        snapshotDelay = NodeCache.SNAPSHOT_DELAY;
+        NodeCache.SNAPSHOT_DELAY = -1;
+    }
+
+    @After
+    public void restoreSnapshotDelay() {
+        NodeCache.SNAPSHOT_DELAY = snapshotDelay;
+    }
+
+    @Test
+    public void keyedByCredentialsPathAndRevision() {
+        NodeCache cache = new NodeCache(null);
+        SVNRepositoryView.NodeEntry node = new SVNRepositoryView.NodeEntry(5, SVNNodeKind.FILE, null);
+        cache.put("", "/trunk/pom.xml", 5, node);
+        assertThat(cache.get("", "/trunk/pom.xml", 5), is(sameInstance(node)));
+        assertThat(cache.get("", "/trunk/pom.xml", 6), is(nullValue()));
+        assertThat(cache.get("", "/trunk/pom.xml", -1), is(nullValue()));
+        assertThat(cache.get("other", "/trunk/pom.xml", 5), is(nullValue()));
+    }
+
+    @Test
+    public void evictsOldestFirst() {
+        int size = NodeCache.SIZE;
+        NodeCache.SIZE = 3;
+        try {
+            NodeCache cache = new NodeCache(null);
+            for (int revision = 1; revision <= 5; revision++) {
+                cache.put("", "/trunk", revision, new SVNRepositoryView.NodeEntry(revision, SVNNodeKind.DIR,
+                        new SVNRepositoryView.ChildEntry[0]));
+            }
+            assertThat(cache.get("", "/trunk", 1), is(nullValue()));
+            assertThat(cache.get("", "/trunk", 2), is(nullValue()));
+            assertThat(cache.get("", "/trunk", 3).getRevision(), is(3L));
+            assertThat(cache.get("", "/trunk", 5).getRevision(), is(5L));
+        } finally {
+            NodeCache.SIZE = size;
+        }
+    }
+
+    @Test
+    public void snapshotRoundTrip() throws Exception {
+        File file = new File(tmp.getRoot(), "svn-uuid.cache");
+        NodeCache cache = new NodeCache(file);
+        cache.put("", "/trunk", 5, new SVNRepositoryView.NodeEntry(5, SVNNodeKind.DIR,
+                new SVNRepositoryView.ChildEntry[]{
+                        new SVNRepositoryView.ChildEntry(4, 4000, SVNNodeKind.FILE, "pom.xml"),
+                        new SVNRepositoryView.ChildEntry(5, 5000, SVNNodeKind.DIR, "src")}));
+        cache.put("creds", "/trunk/pom.xml", -1, new SVNRepositoryView.NodeEntry(4, SVNNodeKind.FILE, null));
+        cache.put("", "/gone", 3, new SVNRepositoryView.NodeEntry(3, SVNNodeKind.NONE, null));
+        cache.save();
+
+        NodeCache loaded = new NodeCache(file);
+        loaded.load();
+        SVNRepositoryView.NodeEntry trunk = loaded.get("", "/trunk", 5);
+        assertThat(trunk.getRevision(), is(5L));
+        assertThat(trunk.getType(), is(SVNNodeKind.DIR));
+        assertThat(trunk.getChildren().length, is(2));
+        assertThat(trunk.getChildren()[0].getName(), is("pom.xml"));
+        assertThat(trunk.getChildren()[0].getRevision(), is(4L));
+        assertThat(trunk.getChildren()[0].getLastModified(), is(4000L));
+        assertThat(trunk.getChildren()[0].getType(), is(SVNNodeKind.FILE));
+        assertThat(trunk.getChildren()[1].getName(), is("src"));
+        assertThat(trunk.getChildren()[1].getType(), is(SVNNodeKind.DIR));
+        assertThat(loaded.get("creds", "/trunk/pom.xml", -1).getChildren(), is(nullValue()));
+        assertThat(loaded.get("creds", "/trunk/pom.xml", -1).getType(), is(SVNNodeKind.FILE));
+        assertThat(loaded.get("", "/gone", 3).getType(), is(SVNNodeKind.NONE));
+        assertThat(loaded.get("", "/trunk/pom.xml", -1), is(nullValue()));
+    }
+
+    @Test
+    public void truncatedSnapshotKeepsCompleteNodes() throws Exception {
+        File file = new File(tmp.getRoot(), "svn-uuid.cache");
+        NodeCache cache = new NodeCache(file);
+        for (int revision = 1; revision <= 10; revision++) {
+            cache.put("", "/trunk", revision, new SVNRepositoryView.NodeEntry(revision, SVNNodeKind.FILE, null));
+        }
+        cache.save();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() / 2);
+        } finally {
+            raf.close();
+        }
+
+        NodeCache loaded = new NodeCache(file);
+        loaded.load();
+        int found = 0;
+        for (int revision = 1; revision <= 10; revision++) {
+            SVNRepositoryView.NodeEntry node = loaded.get("", "/trunk", revision);
+            if (node != null) {
+                assertThat(node.getRevision(), is((long) revision));
+                assertThat(node.getType(), is(SVNNodeKind.FILE));
+                found++;
+            }
+        }
+        assertThat(found > 0 && found < 10, is(true));
+    }
+
+    @Test
+    public void unreadableSnapshotIsIgnored() throws Exception {
+        File file = tmp.newFile("svn-uuid.cache");
+        NodeCache cache = new NodeCache(file);
+        cache.load();
+        assertThat(cache.get("", "/trunk", 1), is(nullValue()));
+    }
+}
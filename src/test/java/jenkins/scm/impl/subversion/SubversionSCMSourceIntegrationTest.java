@@ -31,14 +31,22 @@ import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.scm.SCMRevisionState;
 import hudson.util.StreamTaskListener;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import jenkins.scm.api.SCMHead;
+import jenkins.scm.api.SCMHeadObserver;
 import jenkins.scm.api.SCMRevision;
 import jenkins.scm.api.SCMSource;
+import jenkins.scm.api.SCMSourceCriteria;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.JenkinsRule;
+import org.tmatesoft.svn.core.SVNURL;
 
 public class SubversionSCMSourceIntegrationTest {
 
@@ -101,6 +109,186 @@ public class SubversionSCMSourceIntegrationTest {
         // Completions of revision:
         assertThat(source.fetchRevisions(listener), hasItems("trunk", "branches/dev", "tags/dev-1"));
     }
+
+    @Test
+    public void retrieveWithParallelListing() throws Exception {
+        sampleRepo.init();
+        sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/dev");
+        sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/feature");
+        sampleRepo.svnkit("copy", "--message=tagging", sampleRepo.branchesUrl() + "/dev", sampleRepo.tagsUrl() + "/dev-1");
+        SCMSource source = new SubversionSCMSource(null, sampleRepo.prjUrl());
+        TaskListener listener = StreamTaskListener.fromStdout();
+        int parallelism = SubversionSCMSource.PARALLELISM;
+        List<String> sequential = observe(source, Integer.MAX_VALUE, listener);
+        assertEquals(4, sequential.size());
+        SubversionSCMSource.PARALLELISM = 3;
+        try {
+            assertEquals("[SCMHead{'branches/dev'}, SCMHead{'branches/feature'}, SCMHead{'tags/dev-1'}, SCMHead{'trunk'}]",
+                    source.fetch(listener).toString());
+            // the heads are observed in the order of the sequential walk
+            assertEquals(sequential, observe(source, Integer.MAX_VALUE, listener));
+            // and the walk stops as soon as the observer has seen enough
+            assertEquals(sequential.subList(0, 2), observe(source, 2, listener));
+        } finally {
+            SubversionSCMSource.PARALLELISM = parallelism;
+        }
+    }
+
+    /**
+     * Gets the names of the heads in the order they are observed, until the given number of heads was observed.
+     */
+    private static List<String> observe(@NonNull SCMSource source, final int limit, @NonNull TaskListener listener) throws Exception {
+        final List<String> observed = new ArrayList<String>();
+        source.fetch(new SCMHeadObserver() {
+            @Override
+            public void observe(@NonNull SCMHead head, @NonNull SCMRevision revision) {
+                observed.add(head.getName());
+                assertThat("observed after isObserving() returned false", observed.size(), lessThanOrEqualTo(limit));
+            }
+
+            @Override
+            public boolean isObserving() {
+                return observed.size() < limit;
+            }
+        }, listener);
+        return observed;
+    }
+
+    @Test
+    public void retrieveFromCopiedProject() throws Exception {
+        sampleRepo.init();
+        sampleRepo.write("file", "trunk");
+        sampleRepo.svnkit("commit", "--message=trunk", sampleRepo.wc());
+        sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/dev");
+        // the directories below the copy keep the revisions they were last changed in under prj,
+        // at which they don't exist under copy yet
+        sampleRepo.svnkit("copy", "--message=copying", sampleRepo.prjUrl(), sampleRepo.rootUrl() + "copy");
+        SCMSource source = new SubversionSCMSource(null, sampleRepo.rootUrl() + "copy");
+        TaskListener listener = StreamTaskListener.fromStdout();
+        assertEquals("[SCMHead{'branches/dev'}, SCMHead{'trunk'}]", source.fetch(listener).toString());
+        // the second scan uses the cached listings
+        assertEquals("[SCMHead{'branches/dev'}, SCMHead{'trunk'}]", source.fetch(listener).toString());
+        Run<?,?> run = r.buildAndAssertSuccess(r.createFreeStyleProject());
+        assertRevision(source.fetch(new SCMHead("trunk"), listener), "trunk", source, run, listener);
+        assertRevision(source.fetch(new SCMHead("branches/dev"), listener), "trunk", source, run, listener);
+        assertRevision(source.fetch("branches/dev", listener), "trunk", source, run, listener);
+    }
+
+    @Test
+    public void retrieveFromCopiedProjectWithCriteria() throws Exception {
+        sampleRepo.init();
+        sampleRepo.write("file", "trunk");
+        sampleRepo.svnkit("commit", "--message=trunk", sampleRepo.wc());
+        sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/dev");
+        sampleRepo.svnkit("copy", "--message=copying", sampleRepo.prjUrl(), sampleRepo.rootUrl() + "copy");
+        SCMSource source = new SubversionSCMSource(null, sampleRepo.rootUrl() + "copy");
+        TaskListener listener = StreamTaskListener.fromStdout();
+        SCMHeadObserver.Collector collector = SCMHeadObserver.collect();
+        source.fetch(new SCMSourceCriteria() {
+            @Override
+            public boolean isHead(@NonNull SCMSourceCriteria.Probe probe, @NonNull TaskListener listener) throws IOException {
+                return probe.exists("file");
+            }
+        }, collector, listener);
+        Map<SCMHead, SCMRevision> result = collector.result();
+        assertEquals("[SCMHead{'branches/dev'}, SCMHead{'trunk'}]", result.keySet().toString());
+        // both branches were last changed before copy existed, so they are reported at HEAD
+        for (SCMRevision rev : result.values()) {
+            assertEquals(-1, ((SubversionSCMSource.SCMRevisionImpl) rev).getRevision());
+        }
+        Run<?,?> run = r.buildAndAssertSuccess(r.createFreeStyleProject());
+        assertRevision(result.get(new SCMHead("trunk")), "trunk", source, run, listener);
+        assertRevision(result.get(new SCMHead("branches/dev")), "trunk", source, run, listener);
+    }
+
+    @Test
+    public void listDirectoryReplacedByCopy() throws Exception {
+        sampleRepo.init();
+        sampleRepo.svnkit("mkdir", "--parents", "--message=a", sampleRepo.trunkUrl() + "/sub/a");
+        sampleRepo.svnkit("mkdir", "--parents", "--message=b", sampleRepo.branchesUrl() + "/dev/sub/b");
+        SVNRepositoryView view = new SVNRepositoryView(SVNURL.parseURIEncoded(sampleRepo.rootUrl()), null);
+        try {
+            assertEquals("[b]", names(view.getNode("prj/branches/dev/sub", -1)));
+            assertEquals("[b]", names(view.getNode("prj/branches/dev/sub", -1)));
+            sampleRepo.svnkit("delete", "--message=removing", sampleRepo.branchesUrl() + "/dev");
+            sampleRepo.svnkit("copy", "--message=replacing", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/dev");
+            // sub keeps the revision it was last changed in under trunk, which is not the one of the cached listing
+            assertEquals("[a]", names(view.getNode("prj/branches/dev/sub", -1)));
+        } finally {
+            view.close();
+        }
+    }
+
+    private static String names(SVNRepositoryView.NodeEntry node) {
+        List<String> names = new ArrayList<String>();
+        for (SVNRepositoryView.ChildEntry child : node.getChildren()) {
+            names.add(child.getName());
+        }
+        return names.toString();
+    }
+
+    @Test
+    public void incrementalIndexing() throws Exception {
+        sampleRepo.init();
+        sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/dev");
+        boolean incremental = SubversionSCMSource.INCREMENTAL_INDEXING;
+        SubversionSCMSource.INCREMENTAL_INDEXING = true;
+        try {
+            SCMSource source = new SubversionSCMSource(null, sampleRepo.prjUrl());
+            ByteArrayOutputStream log = new ByteArrayOutputStream();
+            // the first scan walks the directories
+            assertEquals("[SCMHead{'branches/dev'}, SCMHead{'trunk'}]", scan(source, log).keySet().toString());
+            assertThat(log.toString(), not(containsString("Checking changes to")));
+
+            // added and modified branches
+            sampleRepo.write("file", "trunk");
+            sampleRepo.svnkit("commit", "--message=trunk", sampleRepo.wc());
+            sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/feature");
+            log.reset();
+            Map<SCMHead, SCMRevision> heads = scan(source, log);
+            assertThat(log.toString(), containsString("Checking changes to"));
+            assertEquals("[SCMHead{'branches/dev'}, SCMHead{'branches/feature'}, SCMHead{'trunk'}]", heads.keySet().toString());
+            assertEquals(fullScan(), heads);
+
+            // deleted branches
+            sampleRepo.svnkit("delete", "--message=deleting", sampleRepo.branchesUrl() + "/dev");
+            heads = scan(source, log);
+            assertEquals("[SCMHead{'branches/feature'}, SCMHead{'trunk'}]", heads.keySet().toString());
+            assertEquals(fullScan(), heads);
+
+            // branches brought in by the copy of their parent need the directories to be walked
+            sampleRepo.svnkit("copy", "--message=tagging", sampleRepo.branchesUrl() + "/feature", sampleRepo.tagsUrl() + "/feature-1");
+            sampleRepo.svnkit("delete", "--message=deleting", sampleRepo.branchesUrl());
+            sampleRepo.svnkit("copy", "--message=copying", sampleRepo.tagsUrl(), sampleRepo.branchesUrl());
+            log.reset();
+            heads = scan(source, log);
+            assertThat(log.toString(), containsString("Directories were copied above the branches"));
+            assertEquals("[SCMHead{'branches/feature-1'}, SCMHead{'tags/feature-1'}, SCMHead{'trunk'}]", heads.keySet().toString());
+            assertEquals(fullScan(), heads);
+
+            // nothing changed since
+            log.reset();
+            assertEquals(fullScan(), scan(source, log));
+            assertThat(log.toString(), not(containsString("Directories were copied above the branches")));
+        } finally {
+            SubversionSCMSource.INCREMENTAL_INDEXING = incremental;
+        }
+    }
+
+    private Map<SCMHead, SCMRevision> fullScan() throws Exception {
+        boolean incremental = SubversionSCMSource.INCREMENTAL_INDEXING;
+        SubversionSCMSource.INCREMENTAL_INDEXING = false;
+        try {
+            return scan(new SubversionSCMSource(null, sampleRepo.prjUrl()), new ByteArrayOutputStream());
+        } finally {
+            SubversionSCMSource.INCREMENTAL_INDEXING = incremental;
+        }
+    }
+
+    private static Map<SCMHead, SCMRevision> scan(@NonNull SCMSource source, @NonNull ByteArrayOutputStream log) throws Exception {
+        return source.fetch(SCMHeadObserver.collect(), new StreamTaskListener(log)).result();
+    }
+
     private void assertRevision(@CheckForNull SCMRevision rev, @CheckForNull String expectedFile, @NonNull SCMSource source, @NonNull Run<?,?> run, @NonNull TaskListener listener) throws Exception {
         if (rev == null) {
             assertNull(expectedFile);
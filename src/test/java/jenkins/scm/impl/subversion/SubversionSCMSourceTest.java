@@ -22,6 +22,8 @@ import jenkins.scm.api.SCMRevision;
 import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.JenkinsRule;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
+import org.tmatesoft.svn.core.SVNNodeKind;
 
 import java.io.File;
 import java.io.IOException;
@@ -29,15 +31,24 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * @author Stephen Connolly
@@ -208,4 +219,114 @@ public class SubversionSCMSourceTest {
         assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("d")), is(false));
     }
 
+    @Test
+    public void applyChange() throws Exception {
+        SortedSet<List<String>> includes = pathSet(list("trunk"), list("branches", "*"), list("sandbox", "*", "*"));
+        SortedSet<List<String>> excludes = pathSet(list("branches", "old"));
+        TreeMap<String, long[]> branches = new TreeMap<>();
+        Set<String> unverified = new HashSet<>();
+        branches.put("trunk", new long[]{1, 1000});
+        branches.put("branches/foo", new long[]{2, 2000});
+
+        // a commit to a branch
+        assertThat(SubversionSCMSource.applyChange(branches, unverified, "/project", includes, excludes,
+                new SVNLogEntryPath("/project/trunk/src/Foo.java", SVNLogEntryPath.TYPE_MODIFIED, null, -1,
+                        SVNNodeKind.FILE), 3, 3000), is(true));
+        assertThat(branches.get("trunk")[0], is(3L));
+        assertThat(branches.get("trunk")[1], is(3000L));
+
+        // a new branch, an excluded one and a file
+        assertThat(SubversionSCMSource.applyChange(branches, unverified, "/project", includes, excludes,
+                new SVNLogEntryPath("/project/branches/bar", SVNLogEntryPath.TYPE_ADDED, "/project/trunk", 3,
+                        SVNNodeKind.DIR), 4, 4000), is(true));
+        assertThat(SubversionSCMSource.applyChange(branches, unverified, "/project", includes, excludes,
+                new SVNLogEntryPath("/project/branches/old", SVNLogEntryPath.TYPE_ADDED, "/project/trunk", 3,
+                        SVNNodeKind.DIR), 4, 4000), is(true));
+        assertThat(SubversionSCMSource.applyChange(branches, unverified, "/project", includes, excludes,
+                new SVNLogEntryPath("/project/branches/README", SVNLogEntryPath.TYPE_ADDED, null, -1,
+                        SVNNodeKind.FILE), 4, 4000), is(true));
+        assertThat(SubversionSCMSource.applyChange(branches, unverified, "/project", includes, excludes,
+                new SVNLogEntryPath("/project/branches/baz", SVNLogEntryPath.TYPE_ADDED, null, -1,
+                        SVNNodeKind.UNKNOWN), 4, 4000), is(true));
+        assertThat(branches.keySet(), is((Set<String>) new TreeSet<>(Arrays.asList(
+                "branches/bar", "branches/baz", "branches/foo", "trunk"))));
+        assertThat(branches.get("branches/bar")[0], is(4L));
+        assertThat(unverified, is((Set<String>) Collections.singleton("branches/baz")));
+
+        // a deleted branch, and a deleted parent of branches
+        branches.put("sandbox/alice/spike", new long[]{4, 4000});
+        assertThat(SubversionSCMSource.applyChange(branches, unverified, "/project", includes, excludes,
+                new SVNLogEntryPath("/project/branches/foo", SVNLogEntryPath.TYPE_DELETED, null, -1,
+                        SVNNodeKind.UNKNOWN), 5, 5000), is(true));
+        assertThat(SubversionSCMSource.applyChange(branches, unverified, "/project", includes, excludes,
+                new SVNLogEntryPath("/project/sandbox/alice", SVNLogEntryPath.TYPE_DELETED, null, -1,
+                        SVNNodeKind.UNKNOWN), 5, 5000), is(true));
+        assertThat(branches.keySet(), is((Set<String>) new TreeSet<>(Arrays.asList(
+                "branches/bar", "branches/baz", "trunk"))));
+
+        // a new empty parent of branches can be tracked, a copied one can't
+        assertThat(SubversionSCMSource.applyChange(branches, unverified, "/project", includes, excludes,
+                new SVNLogEntryPath("/project/sandbox/bob", SVNLogEntryPath.TYPE_ADDED, null, -1,
+                        SVNNodeKind.DIR), 6, 6000), is(true));
+        assertThat(SubversionSCMSource.applyChange(branches, unverified, "/project", includes, excludes,
+                new SVNLogEntryPath("/project/sandbox/carol", SVNLogEntryPath.TYPE_ADDED, "/project/sandbox/bob", 6,
+                        SVNNodeKind.DIR), 7, 7000), is(false));
+
+        // changes outside of the remote base, and to the remote base itself
+        assertThat(SubversionSCMSource.applyChange(branches, unverified, "/project", includes, excludes,
+                new SVNLogEntryPath("/other/trunk", SVNLogEntryPath.TYPE_ADDED, "/project/trunk", 3,
+                        SVNNodeKind.DIR), 8, 8000), is(true));
+        assertThat(SubversionSCMSource.applyChange(branches, unverified, "/project", includes, excludes,
+                new SVNLogEntryPath("/project", SVNLogEntryPath.TYPE_MODIFIED, null, -1,
+                        SVNNodeKind.DIR), 8, 8000), is(true));
+        assertThat(SubversionSCMSource.applyChange(branches, unverified, "/project", includes, excludes,
+                new SVNLogEntryPath("/project", SVNLogEntryPath.TYPE_REPLACED, "/old-project", 7,
+                        SVNNodeKind.DIR), 8, 8000), is(false));
+    }
+
+    @Test
+    public void candidateProbeAnswersDirectChildrenFromOneListing() throws Exception {
+        SVNRepositoryView repository = mock(SVNRepositoryView.class);
+        when(repository.getNode("/project/branches/dev", -1)).thenReturn(new SVNRepositoryView.NodeEntry(7,
+                SVNNodeKind.DIR, new SVNRepositoryView.ChildEntry[]{
+                        new SVNRepositoryView.ChildEntry(7, 7000, SVNNodeKind.FILE, "Jenkinsfile"),
+                        new SVNRepositoryView.ChildEntry(5, 5000, SVNNodeKind.DIR, "src")}));
+        when(repository.checkPath("/project/branches/dev/Jenkinsfile", -1)).thenReturn(SVNNodeKind.FILE);
+        when(repository.checkPath("/project/branches/dev/src/main", -1)).thenReturn(SVNNodeKind.DIR);
+        SubversionSCMSource.CandidateProbe probe =
+                new SubversionSCMSource.CandidateProbe(repository, "/project/branches/dev", "branches/dev", 7000);
+
+        // a single child is cheaper to check than to list
+        assertThat(probe.exists("Jenkinsfile"), is(true));
+        assertThat(probe.exists("Jenkinsfile"), is(true));
+        verify(repository, never()).getNode(anyString(), anyLong());
+        assertThat(probe.exists("/src/"), is(true));
+        assertThat(probe.exists("pom.xml"), is(false));
+        assertThat(probe.exists("src/main"), is(true));
+        assertThat(probe.existsAt(7), is(true));
+        verify(repository, times(1)).getNode("/project/branches/dev", -1);
+        verify(repository, times(2)).checkPath(anyString(), anyLong());
+    }
+
+    @Test
+    public void candidateProbeChecksBranchesOlderThanTheirPath() throws Exception {
+        // branches/dev was last changed in r3 under another path and copied here in r9
+        SVNRepositoryView repository = mock(SVNRepositoryView.class);
+        when(repository.getNode("/project/branches/dev", -1)).thenReturn(new SVNRepositoryView.NodeEntry(9,
+                SVNNodeKind.DIR, new SVNRepositoryView.ChildEntry[]{
+                        new SVNRepositoryView.ChildEntry(3, 3000, SVNNodeKind.FILE, "Jenkinsfile")}));
+        when(repository.checkPath("/project/branches/dev/Jenkinsfile", -1)).thenReturn(SVNNodeKind.FILE);
+        when(repository.checkPath("/project/branches/dev", 3)).thenReturn(SVNNodeKind.NONE);
+        SubversionSCMSource.CandidateProbe probe =
+                new SubversionSCMSource.CandidateProbe(repository, "/project/branches/dev", "branches/dev", 3000);
+
+        assertThat(probe.exists("Jenkinsfile"), is(true));
+        assertThat(probe.existsAt(3), is(false));
+        verify(repository, times(1)).checkPath("/project/branches/dev", 3);
+        // once listed, the revision the listing was read at needs no request
+        assertThat(probe.exists("pom.xml"), is(false));
+        assertThat(probe.existsAt(9), is(true));
+        verify(repository, times(2)).checkPath(anyString(), anyLong());
+    }
+
 }